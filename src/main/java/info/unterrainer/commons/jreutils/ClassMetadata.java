@@ -0,0 +1,274 @@
+package info.unterrainer.commons.jreutils;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The reflective information {@link Reflecting} needs about a class, gathered
+ * once per class and annotation.
+ * <p>
+ * Attached to the class using a {@link ClassValue}, so it's dropped together
+ * with the class when its class-loader is unloaded. Nothing is cached for
+ * classes whose class-loader can't see the annotation (like {@link Object} or
+ * {@link String} for an annotation of an application), since they can't have
+ * fields annotated with it and caching would keep the annotation (and its
+ * class-loader) alive for as long as those classes live.
+ * <p>
+ * If there are {@link GeneratedAccessors} for a class, its fields are taken
+ * from those instead of scanning the class using reflection.
+ */
+@Slf4j
+final class ClassMetadata {
+
+	private static final ClassValue<ClassMetadata> CACHE = new ClassValue<>() {
+		@Override
+		protected ClassMetadata computeValue(final Class<?> type) {
+			return new ClassMetadata(type);
+		}
+	};
+
+	/**
+	 * The class-loaders whose generated accessors have already been loaded. Weak,
+	 * so class-loaders may still be unloaded.
+	 */
+	private static final Map<ClassLoader, Boolean> LOADED = new WeakHashMap<>();
+
+	private final Class<?> clazz;
+	private final Map<Class<? extends Annotation>, GeneratedAccessors> generated = new ConcurrentHashMap<>();
+	private final Map<Class<? extends Annotation>, List<AnnotatedField>> fields = new ConcurrentHashMap<>();
+	private final Map<Class<? extends Annotation>, Map<String, FieldAccessor>> accessors = new ConcurrentHashMap<>();
+	private final Map<Class<? extends Annotation>, Map<String, FieldPath>> paths = new ConcurrentHashMap<>();
+	private final Map<List<Class<?>>, List<String>> pathsOf = new ConcurrentHashMap<>();
+
+	private ClassMetadata(final Class<?> clazz) {
+		this.clazz = clazz;
+	}
+
+	static ClassMetadata of(final Class<?> clazz) {
+		return CACHE.get(clazz);
+	}
+
+	/**
+	 * Gets the fields declared by this class (not by its superclasses) that are
+	 * annotated with the given annotation, in declaration order.
+	 */
+	List<AnnotatedField> fields(final Class<? extends Annotation> annotation) {
+		if (!sees(clazz, annotation))
+			return List.of();
+		return fields.computeIfAbsent(annotation, this::scanFields);
+	}
+
+	private List<AnnotatedField> scanFields(final Class<? extends Annotation> annotation) {
+		List<AnnotatedField> result = new ArrayList<>();
+		loadGenerated(clazz.getClassLoader());
+		GeneratedAccessors accessors = generated.get(annotation);
+		if (accessors != null)
+			for (GeneratedField field : accessors.fields())
+				result.add(new AnnotatedField(clazz, field));
+		else
+			for (Field field : clazz.getDeclaredFields())
+				if (field.isAnnotationPresent(annotation))
+					result.add(new AnnotatedField(field));
+		return List.copyOf(result);
+	}
+
+	/**
+	 * Registers all generated accessors visible to the given class-loader with the
+	 * metadata of their classes, once per class-loader. If one of them can't be
+	 * loaded, none of them are registered, so all the classes of a class-loader
+	 * are read the same way.
+	 */
+	private static void loadGenerated(final ClassLoader loader) {
+		if (loader == null)
+			return;
+		synchronized (LOADED) {
+			if (LOADED.put(loader, Boolean.TRUE) != null)
+				return;
+			List<GeneratedAccessors> loaded = new ArrayList<>();
+			try {
+				for (GeneratedAccessors accessors : ServiceLoader.load(GeneratedAccessors.class, loader))
+					loaded.add(accessors);
+			} catch (ServiceConfigurationError e) {
+				log.warn("Couldn't load the generated accessors of class-loader [{}]. Falling back to reflection.",
+						loader, e);
+				return;
+			}
+			for (GeneratedAccessors accessors : loaded)
+				of(accessors.type()).generated.put(accessors.annotation(), accessors);
+		}
+	}
+
+	/**
+	 * Gets the accessor of the field with the given name that is annotated with
+	 * the given annotation. Fields of this class shadow fields of its
+	 * superclasses.
+	 *
+	 * @return the accessor or null, if there is no such field
+	 */
+	FieldAccessor accessor(final Class<? extends Annotation> annotation, final String name) {
+		if (!sees(clazz, annotation))
+			return null;
+		return accessors.computeIfAbsent(annotation, this::scanAccessors).get(name);
+	}
+
+	private Map<String, FieldAccessor> scanAccessors(final Class<? extends Annotation> annotation) {
+		Map<String, FieldAccessor> result = new HashMap<>();
+		for (Class<?> c = clazz; c != null && sees(c, annotation); c = c.getSuperclass())
+			for (AnnotatedField field : of(c).fields(annotation))
+				if (!result.containsKey(field.name))
+					result.put(field.name, field.accessor());
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * Gets the given path compiled for this class and the given annotation. Paths
+	 * are cached without their indexes, so indexing a list in a loop doesn't add
+	 * a path per index.
+	 */
+	FieldPath path(final Class<? extends Annotation> annotation, final String path) {
+		String unindexed = FieldPath.unindexed(path);
+		FieldPath compiled;
+		if (!sees(clazz, annotation))
+			compiled = new FieldPath(unindexed, annotation);
+		else
+			compiled = paths.computeIfAbsent(annotation, a -> new ConcurrentHashMap<>())
+					.computeIfAbsent(unindexed, p -> new FieldPath(p, annotation));
+		return unindexed == path ? compiled : compiled.indexed(path);
+	}
+
+	/**
+	 * Gets the paths of all fields of the given type that are reachable from this
+	 * class following fields annotated with the given annotation.
+	 * <p>
+	 * Scans the tree once per type and annotation. The fields of every class in
+	 * the hierarchy are visited once, starting at the top-most ancestor, and
+	 * every path is contained once. Types
+	 * that are already being scanned further up the current path are skipped, so
+	 * cyclic references don't recurse forever.
+	 *
+	 * @param typeToFind the type to search for or null for all types
+	 * @return the immutable list of paths
+	 */
+	List<String> pathsOf(final Class<?> typeToFind, final Class<? extends Annotation> annotation) {
+		if (!sees(clazz, annotation))
+			return List.of();
+		if (typeToFind != null && !sees(clazz, typeToFind))
+			return scanPaths(typeToFind, annotation);
+		return pathsOf.computeIfAbsent(Arrays.asList(typeToFind, annotation),
+				key -> scanPaths(typeToFind, annotation));
+	}
+
+	private List<String> scanPaths(final Class<?> typeToFind, final Class<? extends Annotation> annotation) {
+		// A set, since a field shadowing one of a superclass yields the same path.
+		Set<String> result = new LinkedHashSet<>();
+		scanPaths(clazz, typeToFind, annotation, "", new HashSet<>(), result);
+		return List.copyOf(result);
+	}
+
+	private static void scanPaths(final Class<?> clazz, final Class<?> typeToFind,
+			final Class<? extends Annotation> annotation, final String currentPath, final Set<Class<?>> scanning,
+			final Set<String> paths) {
+		if (!sees(clazz, annotation) || !scanning.add(clazz))
+			return;
+		List<Class<?>> hierarchy = new ArrayList<>();
+		for (Class<?> c = clazz; c != null && sees(c, annotation); c = c.getSuperclass())
+			hierarchy.add(c);
+		Collections.reverse(hierarchy);
+		for (Class<?> c : hierarchy)
+			for (AnnotatedField field : of(c).fields(annotation)) {
+				String path = currentPath + field.name;
+				if (typeToFind == null || typeToFind.isAssignableFrom(field.elementType))
+					paths.add(path);
+				scanPaths(field.elementType, typeToFind, annotation, path + ".", scanning, paths);
+			}
+		scanning.remove(clazz);
+	}
+
+	/**
+	 * Whether the class-loader of the given class can see the given type, which
+	 * is the case, if the type has been loaded by that class-loader or one of its
+	 * ancestors. Otherwise the metadata of the class mustn't reference the type.
+	 */
+	static boolean sees(final Class<?> clazz, final Class<?> type) {
+		ClassLoader target = type.getClassLoader();
+		if (target == null)
+			return true;
+		for (ClassLoader loader = clazz.getClassLoader(); loader != null; loader = loader.getParent())
+			if (loader == target)
+				return true;
+		return false;
+	}
+
+	/**
+	 * An annotated field and the type of its elements, which is the type of the
+	 * field itself, unless it's a list or an array.
+	 */
+	static final class AnnotatedField {
+
+		final String name;
+		final Class<?> elementType;
+		private final Class<?> declaringClass;
+		private final Field field;
+		private final GeneratedField generated;
+
+		AnnotatedField(final Field field) {
+			name = field.getName();
+			elementType = elementTypeOf(field);
+			declaringClass = field.getDeclaringClass();
+			this.field = field;
+			generated = null;
+		}
+
+		AnnotatedField(final Class<?> declaringClass, final GeneratedField generated) {
+			name = generated.name();
+			elementType = generated.elementType();
+			this.declaringClass = declaringClass;
+			field = null;
+			this.generated = generated;
+		}
+
+		FieldAccessor accessor() {
+			if (generated != null && generated.getter() != null)
+				return new FieldAccessor(declaringClass, generated.type(), generated.getter());
+			try {
+				return new FieldAccessor(field != null ? field : declaringClass.getDeclaredField(name));
+			} catch (NoSuchFieldException e) {
+				throw new IllegalStateException(
+						String.format("Generated field [%s] doesn't exist in [%s].", name, declaringClass), e);
+			}
+		}
+
+		private static Class<?> elementTypeOf(final Field field) {
+			Class<?> type = field.getType();
+			if (List.class.isAssignableFrom(type)) {
+				Type generic = field.getGenericType();
+				if (generic instanceof ParameterizedType) {
+					Type argument = ((ParameterizedType) generic).getActualTypeArguments()[0];
+					if (argument instanceof Class)
+						return (Class<?>) argument;
+				}
+				return Object.class;
+			}
+			if (type.isArray())
+				return type.getComponentType();
+			return type;
+		}
+	}
+}
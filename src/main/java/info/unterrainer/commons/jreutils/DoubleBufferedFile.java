@@ -1,7 +1,11 @@
 package info.unterrainer.commons.jreutils;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
@@ -67,6 +71,18 @@ public class DoubleBufferedFile {
 		}
 	}
 
+	@FunctionalInterface
+	public interface FunctionWithIoException<T, R> {
+		/**
+		 * Applies this function to the given argument.
+		 *
+		 * @param t the input argument
+		 * @return the function result
+		 * @throws IOException if one occurs
+		 */
+		R apply(T t) throws IOException;
+	}
+
 	@Data
 	class DoubleBufferedFileData {
 		private final Path path;
@@ -117,7 +133,7 @@ public class DoubleBufferedFile {
 		}
 
 		BufferedWriter getBufferedWriter() throws IOException {
-			Files.createDirectories(path.getParent());
+			Files.createDirectories(path.toAbsolutePath().getParent());
 			return Files.newBufferedWriter(path, Charset.forName("UTF-8"), StandardOpenOption.CREATE,
 					StandardOpenOption.WRITE, StandardOpenOption.APPEND);
 		}
@@ -245,6 +261,30 @@ public class DoubleBufferedFile {
 		p.probe();
 	}
 
+	/**
+	 * Writes binary content to the older file and forces it to the storage device
+	 * before returning, so a torn write always leaves the previous generation in
+	 * the other file.
+	 *
+	 * @param writeContentDelegate the delegate writing the content
+	 * @throws IOException if one occurs
+	 */
+	public void writeBinary(final ConsumerWithIoException<OutputStream> writeContentDelegate) throws IOException {
+		DoubleBufferedFileData p = getOldestForWriteAccess();
+		if (p.exists())
+			Files.delete(p.path());
+
+		Files.createDirectories(p.path().toAbsolutePath().getParent());
+		try (FileChannel channel = FileChannel.open(p.path(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+			writeContentDelegate.accept(out);
+			out.flush();
+			channel.force(true);
+		}
+		p.probe();
+	}
+
 	public String read() throws IOException {
 		DoubleBufferedFileData p = getNewestForReadAccess();
 		return Files.readString(p.path());
@@ -254,4 +294,45 @@ public class DoubleBufferedFile {
 		DoubleBufferedFileData p = getOldestForReadAccess();
 		return Files.readString(p.path());
 	}
+
+	/**
+	 * Reads binary content from the newer file.
+	 * <p>
+	 * The delegate gets a read-only channel positioned at the start of the file,
+	 * so it may stream the content (using {@link Channels#newInputStream}) and
+	 * read single parts of it at their positions without loading the whole file
+	 * into memory. The file isn't mapped, since mapped files can't be unmapped
+	 * explicitly and this file gets rewritten by
+	 * {@link #writeBinary(ConsumerWithIoException)} later on. The channel is
+	 * closed after the delegate returns.
+	 *
+	 * @param <R>                 the type of the result
+	 * @param readContentDelegate the delegate reading the content
+	 * @return the result of the delegate
+	 * @throws IOException if one occurs
+	 */
+	public <R> R readBinary(final FunctionWithIoException<FileChannel, R> readContentDelegate) throws IOException {
+		return readBinary(getNewestForReadAccess(), readContentDelegate);
+	}
+
+	/**
+	 * Reads binary content from the older file.
+	 *
+	 * @param <R>                 the type of the result
+	 * @param readContentDelegate the delegate reading the content
+	 * @return the result of the delegate
+	 * @throws IOException if one occurs
+	 * @see #readBinary(FunctionWithIoException)
+	 */
+	public <R> R readOtherBinary(final FunctionWithIoException<FileChannel, R> readContentDelegate)
+			throws IOException {
+		return readBinary(getOldestForReadAccess(), readContentDelegate);
+	}
+
+	private <R> R readBinary(final DoubleBufferedFileData p,
+			final FunctionWithIoException<FileChannel, R> readContentDelegate) throws IOException {
+		try (FileChannel channel = FileChannel.open(p.path(), StandardOpenOption.READ)) {
+			return readContentDelegate.apply(channel);
+		}
+	}
 }
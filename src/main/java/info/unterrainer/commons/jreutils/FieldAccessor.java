@@ -0,0 +1,98 @@
+package info.unterrainer.commons.jreutils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Reads a single field using a {@link MethodHandle} that is resolved once,
+ * instead of looking the field up and checking its accessibility on every
+ * call. The handle either reads the field reflectively or calls a generated
+ * getter.
+ */
+final class FieldAccessor {
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodHandle APPLY;
+
+	static {
+		try {
+			APPLY = MethodHandles.publicLookup().findVirtual(Function.class, "apply", GETTER_TYPE);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final Class<?> declaringClass;
+	private final boolean list;
+	private final boolean array;
+	private final MethodHandle getter;
+
+	FieldAccessor(final Class<?> declaringClass, final Class<?> type, final Function<Object, Object> getter) {
+		this.declaringClass = declaringClass;
+		list = List.class.isAssignableFrom(type);
+		array = type.isArray();
+		this.getter = APPLY.bindTo(getter);
+	}
+
+	FieldAccessor(final Field field) {
+		declaringClass = field.getDeclaringClass();
+		list = List.class.isAssignableFrom(field.getType());
+		array = field.getType().isArray();
+		field.setAccessible(true);
+		try {
+			MethodHandle handle = MethodHandles.lookup().unreflectGetter(field);
+			if (Modifier.isStatic(field.getModifiers()))
+				handle = MethodHandles.dropArguments(handle, 0, Object.class);
+			getter = handle.asType(GETTER_TYPE);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(String.format("Field [%s] is not accessible.", field), e);
+		}
+	}
+
+	/**
+	 * Gets the value of the field of the given instance. If the field is a list or
+	 * an array and an index is given, gets the element at that index instead.
+	 * Indexes wrap around at both ends.
+	 *
+	 * @param instance the instance to read the field of
+	 * @param index    the index or null
+	 * @return the value
+	 */
+	Object get(final Object instance, final Integer index) {
+		Object value = get(instance);
+		if (index == null)
+			return value;
+		if (list) {
+			List<?> l = (List<?>) value;
+			return l.get(cap(index, l.size()));
+		}
+		if (array)
+			return Array.get(value, cap(index, Array.getLength(value)));
+		return value;
+	}
+
+	Object get(final Object instance) {
+		try {
+			return (Object) getter.invokeExact(instance);
+		} catch (ClassCastException e) {
+			throw new IllegalArgumentException(
+					String.format("[%s] is not an instance of [%s].", instance, declaringClass), e);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static int cap(final int index, final int size) {
+		if (index >= 0)
+			return index % size;
+		return index % size + size;
+	}
+}
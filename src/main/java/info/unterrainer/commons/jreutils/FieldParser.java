@@ -6,6 +6,13 @@ import java.util.List;
 
 import lombok.RequiredArgsConstructor;
 
+/**
+ * Resolves a path by scanning the fields of every class along it.
+ * <p>
+ * {@link Reflecting#getFieldByPath(String, Object, Class)} uses a cached
+ * {@link FieldPath} instead. This is kept as the uncached reference it's
+ * compared against.
+ */
 @RequiredArgsConstructor
 class FieldParser {
 
@@ -0,0 +1,114 @@
+package info.unterrainer.commons.jreutils;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * A path like 'myField.myList:2.myVar' that has been split into its segments
+ * once, so following it doesn't parse anything.
+ * <p>
+ * The accessor of every segment is looked up in the {@link ClassMetadata} of
+ * the class actually encountered, which is attached to that class, so a path
+ * doesn't keep any of the classes it has been followed through (or their
+ * class-loaders) alive.
+ * <p>
+ * The segments are shared by all the paths that only differ in their indexes,
+ * so compiling 'myList:0' to 'myList:999' doesn't cache anything more than
+ * compiling 'myList' once.
+ * <p>
+ * Get instances using {@link Reflecting#compilePath(Class, String, Class)}.
+ * They are thread-safe.
+ */
+public final class FieldPath {
+
+	private final String path;
+	private final Class<? extends Annotation> annotation;
+	private final String[] segments;
+	/**
+	 * The index of every segment (or null for segments without one); null, if
+	 * there are no indexes at all.
+	 */
+	private final Integer[] indexes;
+
+	/**
+	 * Compiles the given path, which mustn't contain any indexes.
+	 */
+	FieldPath(final String path, final Class<? extends Annotation> annotation) {
+		this.path = path;
+		this.annotation = annotation;
+		segments = path.split("\\.");
+		indexes = null;
+	}
+
+	private FieldPath(final String path, final FieldPath unindexed, final Integer[] indexes) {
+		this.path = path;
+		annotation = unindexed.annotation;
+		segments = unindexed.segments;
+		this.indexes = indexes;
+	}
+
+	/**
+	 * Removes the indexes from the given path ('myField.myList:2.myVar' becomes
+	 * 'myField.myList.myVar').
+	 */
+	static String unindexed(final String path) {
+		if (path.indexOf(':') == -1)
+			return path;
+		StringBuilder sb = new StringBuilder(path.length());
+		for (String part : path.split("\\.")) {
+			if (sb.length() > 0)
+				sb.append('.');
+			int pos = part.indexOf(':');
+			sb.append(pos == -1 ? part : part.substring(0, pos));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the given path, sharing the segments of this path, which has to be the
+	 * given path without its indexes.
+	 */
+	FieldPath indexed(final String path) {
+		String[] parts = path.split("\\.");
+		Integer[] result = new Integer[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			int pos = parts[i].indexOf(':');
+			result[i] = pos == -1 ? null : parseIndex(parts[i].substring(pos + 1));
+		}
+		return new FieldPath(path, this, result);
+	}
+
+	private static Integer parseIndex(final String index) {
+		try {
+			return Integer.parseInt(index);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Follows this path, starting at the given instance.
+	 *
+	 * @param instance the instance to start at
+	 * @return the value at the end of this path or null, if there is no annotated
+	 *         field for one of its segments
+	 */
+	public Object get(final Object instance) {
+		Object current = instance;
+		for (int i = 0; i < segments.length; i++) {
+			FieldAccessor accessor = ClassMetadata.of(current.getClass()).accessor(annotation, segments[i]);
+			if (accessor == null)
+				return null;
+			current = accessor.get(current, indexes == null ? null : indexes[i]);
+		}
+		return current;
+	}
+
+	/**
+	 * Gets the path this instance was compiled from.
+	 *
+	 * @return the path
+	 */
+	public String path() {
+		return path;
+	}
+}
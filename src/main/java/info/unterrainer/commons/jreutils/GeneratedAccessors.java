@@ -0,0 +1,40 @@
+package info.unterrainer.commons.jreutils;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+
+/**
+ * The accessors of the fields of a class that are annotated with a specific
+ * annotation, generated at compile-time by
+ * {@link info.unterrainer.commons.jreutils.processing.AccessorProcessor}.
+ * <p>
+ * Implementations are registered as services. {@link Reflecting} (and
+ * therefore {@code FieldLogger}) loads them from the class-loader of a class
+ * using a {@link java.util.ServiceLoader} before scanning it and uses them
+ * instead of reflection. Classes without generated accessors are scanned using
+ * reflection as before.
+ */
+public interface GeneratedAccessors {
+
+	/**
+	 * Gets the class declaring the fields.
+	 *
+	 * @return the class
+	 */
+	Class<?> type();
+
+	/**
+	 * Gets the annotation the fields are annotated with.
+	 *
+	 * @return the annotation
+	 */
+	Class<? extends Annotation> annotation();
+
+	/**
+	 * Gets the annotated fields declared by {@link #type()} (not by its
+	 * superclasses), in declaration order.
+	 *
+	 * @return the fields
+	 */
+	List<GeneratedField> fields();
+}
@@ -0,0 +1,32 @@
+package info.unterrainer.commons.jreutils;
+
+import java.util.function.Function;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * A single field of {@link GeneratedAccessors}.
+ */
+@Getter
+@Accessors(fluent = true)
+@RequiredArgsConstructor
+public class GeneratedField {
+
+	private final String name;
+	/**
+	 * The declared type of the field.
+	 */
+	private final Class<?> type;
+	/**
+	 * The type of the elements of the field, which is the type of the field
+	 * itself, unless it's a list or an array.
+	 */
+	private final Class<?> elementType;
+	/**
+	 * Reads the field of a given instance; null, if the field isn't accessible
+	 * from generated code, in which case it's read using reflection.
+	 */
+	private final Function<Object, Object> getter;
+}
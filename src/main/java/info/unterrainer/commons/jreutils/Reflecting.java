@@ -1,10 +1,12 @@
 package info.unterrainer.commons.jreutils;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import lombok.experimental.UtilityClass;
 
@@ -24,7 +26,7 @@ public class Reflecting {
 	 * @return a list of paths where the given fields have been found
 	 */
 	public List<String> getPathsOf(final Class<?> classToScan, final Class<? extends Annotation> annotationToScanFor) {
-		return getPathsOf(classToScan, null, annotationToScanFor, "");
+		return getPathsOf(classToScan, null, annotationToScanFor);
 	}
 
 	/**
@@ -43,57 +45,18 @@ public class Reflecting {
 	 */
 	public List<String> getPathsOf(final Class<?> classToScan, final Class<?> fieldTypeToFind,
 			final Class<? extends Annotation> annotationToScanFor) {
-		return getPathsOf(classToScan, fieldTypeToFind, annotationToScanFor, "");
-	}
-
-	private List<String> getPathsOf(final Class<?> classToScan, final Class<?> typeToFind,
-			final Class<? extends Annotation> annotation, final String currentPath) {
-		List<String> paths = new ArrayList<>();
-		getInheritedFields(classToScan, typeToFind, annotation, currentPath, paths);
-		getFields(classToScan, typeToFind, annotation, currentPath, paths);
-		return paths;
-	}
-
-	private void getFields(final Class<?> classToScan, final Class<?> typeToFind,
-			final Class<? extends Annotation> annotation, final String currentPath, final List<String> paths) {
-		for (Field field : classToScan.getDeclaredFields()) {
-
-			if (field.isAnnotationPresent(annotation)) {
-				Class<?> currentType = resolveTypeOf(field);
-				if (typeToFind == null || typeToFind.isAssignableFrom(currentType)) {
-					paths.add(currentPath + field.getName());
-				}
-				paths.addAll(getPathsOf(currentType, typeToFind, annotation, currentPath + field.getName() + "."));
-			}
-		}
-	}
-
-	private Class<?> resolveTypeOf(Field field) {
-		Class<?> currentType = field.getType();
-		if (List.class.isAssignableFrom(currentType)) {
-			ParameterizedType pt = (ParameterizedType) field.getGenericType();
-			return (Class<?>) pt.getActualTypeArguments()[0];
-		}
-		if (currentType.isArray()) {
-			currentType = currentType.getComponentType();
-		}
-		return currentType;
-	}
-
-	private void getInheritedFields(final Class<?> classToScan, final Class<?> typeToFind,
-			final Class<? extends Annotation> annotation, final String currentPath, final List<String> paths) {
-		Class<?> c = classToScan.getSuperclass();
-		while (c != null) {
-			paths.addAll(getPathsOf(c, typeToFind, annotation, currentPath));
-			c = c.getSuperclass();
-		}
+		return ClassMetadata.of(classToScan).pathsOf(fieldTypeToFind, annotationToScanFor);
 	}
 
 	/**
 	 * Gets the instance of a specific field given by path.<br>
 	 * <br>
 	 * Resolves generic Lists and Arrays as well (example for indexing:
-	 * 'myField.myList:2.myVar')
+	 * 'myField.myList:2.myVar')<br>
+	 * <br>
+	 * The path is compiled once per class and annotation and the fields along it
+	 * are resolved to cached accessors, so calling this repeatedly for instances
+	 * of the same class doesn't scan any fields.
 	 *
 	 * @param <T>                 the type of the field to find
 	 * @param path                The path to follow in order to get to the field
@@ -109,10 +72,188 @@ public class Reflecting {
 	 *                                  language access control and the underlying
 	 *                                  field is inaccessible.
 	 */
+	@SuppressWarnings("unchecked")
 	public <T> T getFieldByPath(final String path, final Object instanceToSearchIn,
 			final Class<? extends Annotation> annotationToScanFor)
 			throws IllegalArgumentException, IllegalAccessException {
-		FieldParser p = new FieldParser(path, instanceToSearchIn, annotationToScanFor);
-		return p.parse();
+		return (T) ClassMetadata.of(instanceToSearchIn.getClass()).path(annotationToScanFor, path)
+				.get(instanceToSearchIn);
+	}
+
+	/**
+	 * Compiles the given path, so it may be followed for many instances of the
+	 * given class without parsing it or looking up its fields again.<br>
+	 * <br>
+	 * The compiled path is cached without its indexes. Compiling the same path
+	 * for the same class and annotation again returns the same instance, if it
+	 * has no indexes. Paths only differing in their indexes share their resolved
+	 * fields.
+	 *
+	 * @param classToSearchIn     the class of the instances to search in
+	 * @param path                The path to follow in order to get to the field
+	 * @param annotationToScanFor the annotation that leads to the field to find
+	 * @return the compiled path
+	 * @see #getFieldByPath(String, Object, Class)
+	 */
+	public FieldPath compilePath(final Class<?> classToSearchIn, final String path,
+			final Class<? extends Annotation> annotationToScanFor) {
+		return ClassMetadata.of(classToSearchIn).path(annotationToScanFor, path);
+	}
+
+	/**
+	 * Gets the fields given by paths of many instances of the same class at once,
+	 * column-wise.<br>
+	 * <br>
+	 * The paths are compiled once for the whole batch, so this doesn't parse any
+	 * path or look up any field per instance.
+	 *
+	 * @param classToSearchIn     the class of the instances to search in
+	 * @param paths               the paths to follow in order to get to the fields
+	 * @param instances           the instances to search in
+	 * @param annotationToScanFor the annotation that leads to the fields to find
+	 * @return one array per path (in the order of the given paths) containing the
+	 *         field of every instance (in the order of the given instances)
+	 * @throws IllegalArgumentException if one of the instances is not an instance
+	 *                                  of the given class
+	 * @see #getFieldByPath(String, Object, Class)
+	 */
+	public Object[][] getFieldsByPaths(final Class<?> classToSearchIn, final List<String> paths,
+			final Iterable<?> instances, final Class<? extends Annotation> annotationToScanFor) {
+		return getFieldsByPaths(classToSearchIn, paths, instances, annotationToScanFor, false);
+	}
+
+	/**
+	 * Gets the fields given by paths of many instances of the same class at once,
+	 * column-wise.<br>
+	 * <br>
+	 * The paths are compiled once for the whole batch, so this doesn't parse any
+	 * path or look up any field per instance.
+	 *
+	 * @param classToSearchIn     the class of the instances to search in
+	 * @param paths               the paths to follow in order to get to the fields
+	 * @param instances           the instances to search in
+	 * @param annotationToScanFor the annotation that leads to the fields to find
+	 * @param parallel            whether to read the instances in parallel using the
+	 *                            common fork-join pool (worthwhile for large
+	 *                            batches only)
+	 * @return one array per path (in the order of the given paths) containing the
+	 *         field of every instance (in the order of the given instances)
+	 * @throws IllegalArgumentException if one of the instances is not an instance
+	 *                                  of the given class
+	 * @see #getFieldByPath(String, Object, Class)
+	 */
+	public Object[][] getFieldsByPaths(final Class<?> classToSearchIn, final List<String> paths,
+			final Iterable<?> instances, final Class<? extends Annotation> annotationToScanFor,
+			final boolean parallel) {
+		List<Object> rows = new ArrayList<>();
+		instances.forEach(rows::add);
+		return columns(compilePaths(classToSearchIn, paths, annotationToScanFor), classToSearchIn, rows.toArray(),
+				parallel);
+	}
+
+	/**
+	 * Gets the fields given by paths of many instances of the same class at once,
+	 * column-wise.<br>
+	 * <br>
+	 * The paths are compiled once for the whole batch. The instances are read in
+	 * parallel, if the given stream is parallel.
+	 *
+	 * @param classToSearchIn     the class of the instances to search in
+	 * @param paths               the paths to follow in order to get to the fields
+	 * @param instances           the instances to search in
+	 * @param annotationToScanFor the annotation that leads to the fields to find
+	 * @return one array per path (in the order of the given paths) containing the
+	 *         field of every instance (in the encounter order of the stream)
+	 * @throws IllegalArgumentException if one of the instances is not an instance
+	 *                                  of the given class
+	 * @see #getFieldByPath(String, Object, Class)
+	 */
+	public Object[][] getFieldsByPaths(final Class<?> classToSearchIn, final List<String> paths,
+			final Stream<?> instances, final Class<? extends Annotation> annotationToScanFor) {
+		boolean parallel = instances.isParallel();
+		return columns(compilePaths(classToSearchIn, paths, annotationToScanFor), classToSearchIn,
+				instances.toArray(), parallel);
+	}
+
+	/**
+	 * Gets the fields given by paths of many instances of the same class at once,
+	 * row-wise.<br>
+	 * <br>
+	 * The paths are compiled once for the whole batch.
+	 *
+	 * @param classToSearchIn     the class of the instances to search in
+	 * @param paths               the paths to follow in order to get to the fields
+	 * @param instances           the instances to search in
+	 * @param annotationToScanFor the annotation that leads to the fields to find
+	 * @param parallel            whether to read the instances in parallel using the
+	 *                            common fork-join pool
+	 * @return one array per instance (in the order of the given instances)
+	 *         containing its fields (in the order of the given paths)
+	 * @throws IllegalArgumentException if one of the instances is not an instance
+	 *                                  of the given class
+	 */
+	public List<Object[]> getRowsByPaths(final Class<?> classToSearchIn, final List<String> paths,
+			final Iterable<?> instances, final Class<? extends Annotation> annotationToScanFor,
+			final boolean parallel) {
+		return getRowsByPaths(classToSearchIn, paths, StreamSupport.stream(instances.spliterator(), parallel),
+				annotationToScanFor).collect(Collectors.toList());
+	}
+
+	/**
+	 * Gets the fields given by paths of many instances of the same class at once,
+	 * row-wise.<br>
+	 * <br>
+	 * The paths are compiled once, before the returned stream is consumed. The
+	 * returned stream is lazy and parallel, if the given stream is, so large
+	 * batches may be exported without collecting them first.
+	 *
+	 * @param classToSearchIn     the class of the instances to search in
+	 * @param paths               the paths to follow in order to get to the fields
+	 * @param instances           the instances to search in
+	 * @param annotationToScanFor the annotation that leads to the fields to find
+	 * @return a stream of one array per instance (in the encounter order of the
+	 *         given stream) containing its fields (in the order of the given paths)
+	 * @throws IllegalArgumentException if one of the instances is not an instance
+	 *                                  of the given class
+	 */
+	public Stream<Object[]> getRowsByPaths(final Class<?> classToSearchIn, final List<String> paths,
+			final Stream<?> instances, final Class<? extends Annotation> annotationToScanFor) {
+		FieldPath[] compiled = compilePaths(classToSearchIn, paths, annotationToScanFor);
+		return instances.map(instance -> {
+			checkInstance(classToSearchIn, instance);
+			Object[] row = new Object[compiled.length];
+			for (int j = 0; j < compiled.length; j++)
+				row[j] = compiled[j].get(instance);
+			return row;
+		});
+	}
+
+	private FieldPath[] compilePaths(final Class<?> classToSearchIn, final List<String> paths,
+			final Class<? extends Annotation> annotationToScanFor) {
+		FieldPath[] compiled = new FieldPath[paths.size()];
+		for (int j = 0; j < compiled.length; j++)
+			compiled[j] = compilePath(classToSearchIn, paths.get(j), annotationToScanFor);
+		return compiled;
+	}
+
+	private Object[][] columns(final FieldPath[] compiled, final Class<?> classToSearchIn, final Object[] rows,
+			final boolean parallel) {
+		Object[][] columns = new Object[compiled.length][rows.length];
+		IntStream range = IntStream.range(0, rows.length);
+		if (parallel)
+			range = range.parallel();
+		range.forEach(i -> {
+			Object instance = rows[i];
+			checkInstance(classToSearchIn, instance);
+			for (int j = 0; j < compiled.length; j++)
+				columns[j][i] = compiled[j].get(instance);
+		});
+		return columns;
+	}
+
+	private void checkInstance(final Class<?> classToSearchIn, final Object instance) {
+		if (!classToSearchIn.isInstance(instance))
+			throw new IllegalArgumentException(
+					String.format("[%s] is not an instance of [%s].", instance, classToSearchIn.getName()));
 	}
 }
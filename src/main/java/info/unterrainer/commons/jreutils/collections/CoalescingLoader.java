@@ -0,0 +1,213 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The loading logic of {@link DataMap} and {@link StripedDataMap}.
+ * <p>
+ * Coalesces concurrent misses of the same key into a single call of the
+ * loader, which runs without holding any lock of the map. The map provides the
+ * storage by implementing the abstract methods.
+ */
+abstract class CoalescingLoader<K, V> {
+
+	private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the value of the given key, recording a hit or a miss.
+	 */
+	abstract V get(K key);
+
+	/**
+	 * Gets the value of the given key without recording a hit or a miss.
+	 */
+	abstract V peek(K key);
+
+	abstract void put(K key, V value);
+
+	/**
+	 * Tells if the entry of the given key is due for a reload according to the
+	 * eviction-policy.
+	 */
+	abstract boolean needsRefresh(K key);
+
+	abstract StatsRecorder recorder();
+
+	V computeIfAbsent(final K key, final Function<? super K, ? extends V> loader) {
+		V value = get(key);
+		if (value != null) {
+			if (needsRefresh(key))
+				refresh(key, k -> CompletableFuture.supplyAsync(() -> loader.apply(k)));
+			return value;
+		}
+		CompletableFuture<V> future = new CompletableFuture<>();
+		CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+		if (inFlight != null)
+			return join(inFlight);
+		try {
+			// Another thread may have finished loading it in the meantime.
+			value = peek(key);
+			if (value == null) {
+				value = timed(key, loader);
+				if (value != null)
+					put(key, value);
+			}
+			future.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(key, future);
+		}
+	}
+
+	CompletableFuture<V> computeIfAbsentAsync(final K key,
+			final Function<? super K, ? extends CompletableFuture<? extends V>> loader) {
+		V value = get(key);
+		if (value != null) {
+			if (needsRefresh(key))
+				refresh(key, loader);
+			return CompletableFuture.completedFuture(value);
+		}
+		CompletableFuture<V> future = new CompletableFuture<>();
+		CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+		if (inFlight != null)
+			return inFlight.copy();
+		value = peek(key);
+		if (value != null) {
+			loading.remove(key, future);
+			future.complete(value);
+			return future;
+		}
+		load(key, loader, future);
+		return future.copy();
+	}
+
+	Map<K, V> getAll(final Collection<? extends K> keys,
+			final Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> bulkLoader) {
+		Map<K, V> result = new HashMap<>();
+		Map<K, CompletableFuture<V>> owned = new HashMap<>();
+		Map<K, CompletableFuture<V>> waiting = new HashMap<>();
+		for (K key : keys) {
+			if (result.containsKey(key) || owned.containsKey(key) || waiting.containsKey(key))
+				continue;
+			V value = get(key);
+			if (value != null) {
+				result.put(key, value);
+				continue;
+			}
+			CompletableFuture<V> future = new CompletableFuture<>();
+			CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+			if (inFlight != null) {
+				waiting.put(key, inFlight);
+				continue;
+			}
+			value = peek(key);
+			if (value != null) {
+				loading.remove(key, future);
+				future.complete(value);
+				result.put(key, value);
+			} else
+				owned.put(key, future);
+		}
+		if (!owned.isEmpty())
+			try {
+				Map<? extends K, ? extends V> loaded = timed(Collections.unmodifiableSet(owned.keySet()), bulkLoader);
+				for (Entry<K, CompletableFuture<V>> entry : owned.entrySet()) {
+					V value = loaded == null ? null : loaded.get(entry.getKey());
+					if (value != null) {
+						put(entry.getKey(), value);
+						result.put(entry.getKey(), value);
+					}
+					entry.getValue().complete(value);
+				}
+			} catch (RuntimeException | Error e) {
+				for (CompletableFuture<V> future : owned.values())
+					future.completeExceptionally(e);
+				throw e;
+			} finally {
+				for (Entry<K, CompletableFuture<V>> entry : owned.entrySet())
+					loading.remove(entry.getKey(), entry.getValue());
+			}
+		for (Entry<K, CompletableFuture<V>> entry : waiting.entrySet()) {
+			V value = join(entry.getValue());
+			if (value != null)
+				result.put(entry.getKey(), value);
+		}
+		return result;
+	}
+
+	private void refresh(final K key, final Function<? super K, ? extends CompletableFuture<? extends V>> loader) {
+		CompletableFuture<V> future = new CompletableFuture<>();
+		if (loading.putIfAbsent(key, future) == null)
+			load(key, loader, future);
+	}
+
+	private void load(final K key, final Function<? super K, ? extends CompletableFuture<? extends V>> loader,
+			final CompletableFuture<V> future) {
+		long start = System.nanoTime();
+		CompletableFuture<? extends V> loaded;
+		try {
+			loaded = loader.apply(key);
+		} catch (RuntimeException | Error e) {
+			recordLoad(start, false);
+			loading.remove(key, future);
+			future.completeExceptionally(e);
+			return;
+		}
+		loaded.whenComplete((value, throwable) -> {
+			recordLoad(start, throwable == null);
+			if (throwable == null && value != null)
+				put(key, value);
+			loading.remove(key, future);
+			if (throwable != null)
+				future.completeExceptionally(throwable);
+			else
+				future.complete(value);
+		});
+	}
+
+	private <A, R> R timed(final A argument, final Function<? super A, ? extends R> loader) {
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			R result = loader.apply(argument);
+			success = true;
+			return result;
+		} finally {
+			recordLoad(start, success);
+		}
+	}
+
+	private void recordLoad(final long start, final boolean success) {
+		StatsRecorder recorder = recorder();
+		if (recorder == null)
+			return;
+		if (success)
+			recorder.recordLoad(System.nanoTime() - start);
+		else
+			recorder.recordLoadFailure(System.nanoTime() - start);
+	}
+
+	private static <V> V join(final CompletableFuture<V> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * The base of the primitive columns a {@link DataTable} maintains alongside
+ * its queue.
+ * <p>
+ * A column is a ring-buffer with the capacity of the table, holding one value
+ * per row in the same order as the queue. Isn't thread-safe on its own; the
+ * owning {@link DataTable} guards every access using its lock.
+ * <p>
+ * Subclasses store the values in a primitive array and only provide the loops
+ * over a contiguous range of it. Splitting the ring into its two ranges and
+ * aggregating large ranges using fork-join is done here.
+ */
+abstract class DataColumn<T> {
+
+	/**
+	 * Ranges larger than this are aggregated in parallel, if requested.
+	 */
+	static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	protected final String name;
+	protected final int capacity;
+	protected int head;
+	protected int size;
+
+	DataColumn(final String name, final int capacity) {
+		this.name = name;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Extracts the value of the given element and appends it.
+	 */
+	void append(final T element) {
+		int slot = head + size;
+		set(slot >= capacity ? slot - capacity : slot, element);
+		size++;
+	}
+
+	/**
+	 * Drops the value of the oldest row.
+	 */
+	void dropHead() {
+		if (size == 0)
+			return;
+		head = head + 1 == capacity ? 0 : head + 1;
+		size--;
+	}
+
+	void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Gets the length of the first contiguous range of values, starting at the
+	 * head. The rest starts at index 0.
+	 */
+	protected int firstRangeLength() {
+		return Math.min(size, capacity - head);
+	}
+
+	/**
+	 * Aggregates all values, range by range, splitting large ranges into tasks
+	 * of the common fork-join pool, if requested.
+	 *
+	 * @param parallel   whether to aggregate large ranges in parallel
+	 * @param aggregator aggregates a contiguous range of the backing array
+	 * @param combiner   combines the results of two ranges
+	 * @return the combined result
+	 */
+	protected <R> R aggregate(final boolean parallel, final RangeAggregator<R> aggregator,
+			final BinaryOperator<R> combiner) {
+		int first = firstRangeLength();
+		R a = aggregate(head, head + first, parallel, aggregator, combiner);
+		R b = aggregate(0, size - first, parallel, aggregator, combiner);
+		return combiner.apply(a, b);
+	}
+
+	private static <R> R aggregate(final int from, final int to, final boolean parallel,
+			final RangeAggregator<R> aggregator, final BinaryOperator<R> combiner) {
+		if (parallel && to - from > PARALLEL_THRESHOLD)
+			return new Aggregation<>(from, to, aggregator, combiner).invoke();
+		return aggregator.aggregate(from, to);
+	}
+
+	/**
+	 * Passes the contiguous ranges of the backing array holding all values, in
+	 * the order of the rows, to the given consumer.
+	 */
+	protected void forEachRange(final RangeConsumer consumer) {
+		int first = firstRangeLength();
+		consumer.accept(head, head + first);
+		consumer.accept(0, size - first);
+	}
+
+	abstract void set(int slot, T element);
+
+	@FunctionalInterface
+	interface RangeAggregator<R> {
+		R aggregate(int from, int to);
+	}
+
+	@FunctionalInterface
+	interface RangeConsumer {
+		void accept(int from, int to);
+	}
+
+	private static class Aggregation<R> extends RecursiveTask<R> {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final RangeAggregator<R> aggregator;
+		private final BinaryOperator<R> combiner;
+
+		Aggregation(final int from, final int to, final RangeAggregator<R> aggregator,
+				final BinaryOperator<R> combiner) {
+			this.from = from;
+			this.to = to;
+			this.aggregator = aggregator;
+			this.combiner = combiner;
+		}
+
+		@Override
+		protected R compute() {
+			if (to - from <= PARALLEL_THRESHOLD)
+				return aggregator.aggregate(from, to);
+			int middle = (from + to) >>> 1;
+			Aggregation<R> left = new Aggregation<>(from, middle, aggregator, combiner);
+			left.fork();
+			R b = new Aggregation<>(middle, to, aggregator, combiner).compute();
+			R a = left.join();
+			return combiner.apply(a, b);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * The base of all indexes a {@link DataTable} maintains.
+ * <p>
+ * Isn't thread-safe on its own. The owning {@link DataTable} guards every
+ * access using its lock.
+ */
+abstract class DataIndex<T> {
+
+	/**
+	 * Marks a row in a prepared batch that doesn't satisfy the filter of the
+	 * index.
+	 */
+	protected static final Object SKIPPED = new Object();
+
+	protected final String name;
+	protected final Function<T, Boolean> filter;
+
+	/**
+	 * The number of elements that were dropped from this index, because they were
+	 * evicted from the queue of the table.
+	 */
+	long evictions;
+
+	/**
+	 * Records lookups and evictions of this index, if the table records
+	 * statistics; null otherwise.
+	 */
+	StatsRecorder stats;
+
+	/**
+	 * If set, loading the table doesn't rebuild this index right away, but marks
+	 * it as stale.
+	 */
+	boolean deferred;
+
+	/**
+	 * Set, if this index has to be rebuilt from the rows of the table before it's
+	 * looked up the next time.
+	 */
+	volatile boolean stale;
+
+	/**
+	 * The time it took to rebuild this index the last time.
+	 */
+	long buildNanos;
+
+	DataIndex(final String name, final Function<T, Boolean> filter) {
+		this.name = name;
+		this.filter = filter;
+	}
+
+	boolean accepts(final T element) {
+		return filter == null || filter.apply(element);
+	}
+
+	/**
+	 * Adds the given element to this index, if it satisfies the filter.
+	 */
+	abstract void put(T element);
+
+	/**
+	 * Removes the given element from this index. Leaves the index untouched, if
+	 * the key of the element references another element by now.
+	 *
+	 * @return true, if the element was removed
+	 */
+	abstract boolean remove(T element);
+
+	abstract void clear();
+
+	/**
+	 * Replaces the contents of this index with the given rows.
+	 * <p>
+	 * Only touches this index, so the indexes of a table may be rebuilt in
+	 * parallel. Implementations allocate their tables for the number of rows
+	 * upfront, so they don't have to grow while being filled.
+	 */
+	void rebuild(final List<T> rows) {
+		clear();
+		for (T row : rows)
+			put(row);
+	}
+
+	/**
+	 * Gets the capacity of a hash-map holding the given number of entries without
+	 * rehashing, using the default load-factor.
+	 */
+	static int capacityFor(final int size) {
+		return (int) (size / 0.75f) + 1;
+	}
+
+	/**
+	 * Computes the keys for all the given elements and returns an action that
+	 * adds them to this index.
+	 * <p>
+	 * The computation only calls the key-suppliers and filters and may therefore
+	 * run outside of the lock of the table (and in parallel to the preparation of
+	 * other indexes). The returned action has to run while holding the
+	 * write-lock. It takes the position of the first element to add, since
+	 * elements of large batches may have been evicted from the queue before being
+	 * indexed.
+	 *
+	 * @param elements the elements to prepare
+	 * @return the action adding the prepared elements, starting at the given
+	 *         position, to this index
+	 */
+	abstract IntConsumer prepare(List<T> elements);
+}
@@ -5,26 +5,131 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import lombok.NoArgsConstructor;
 
 /**
  * A synchronized, size-limited hash-map.
+ * <p>
+ * Pass an {@link EvictionPolicy} to use it as a cache with LRU-eviction,
+ * weight-limits or expiring entries.
+ * <p>
+ * The loading methods ({@link #computeIfAbsent(Object, Function)},
+ * {@link #computeIfAbsentAsync(Object, Function)} and
+ * {@link #getAll(Collection, Function)}) coalesce concurrent misses of the same
+ * key into a single call of the loader, which runs without holding the lock of
+ * this map.
  */
 @NoArgsConstructor
 public class DataMap<K, V> {
 
-	private SizeLimitedHashMap<K, V> map;
+	private Map<K, V> map;
+	private volatile StatsRecorder stats;
+	private final CoalescingLoader<K, V> loading = new CoalescingLoader<>() {
+
+		@Override
+		V get(final K key) {
+			return DataMap.this.get(key);
+		}
+
+		@Override
+		V peek(final K key) {
+			return DataMap.this.peek(key);
+		}
+
+		@Override
+		void put(final K key, final V value) {
+			DataMap.this.put(key, value);
+		}
+
+		@Override
+		boolean needsRefresh(final K key) {
+			return DataMap.this.needsRefresh(key);
+		}
+
+		@Override
+		StatsRecorder recorder() {
+			return stats;
+		}
+	};
 
 	public DataMap(final int maxSize) {
 		map = new SizeLimitedHashMap<>(maxSize);
 	}
 
+	public DataMap(final EvictionPolicy<K, V> policy) {
+		if (policy.isTinyLfu())
+			map = new TinyLfuHashMap<>(policy);
+		else
+			map = new SizeLimitedHashMap<>(policy);
+	}
+
+	/**
+	 * Starts recording hits, misses, puts, evictions and load-times of this map.
+	 *
+	 * @return this instance to provide a fluent interface
+	 */
+	public DataMap<K, V> recordStats() {
+		return recordStats(new StatsRecorder());
+	}
+
+	/**
+	 * Starts recording hits, misses, puts, evictions and load-times of this map
+	 * using the given recorder (that you may register using {@link JmxStats}, for
+	 * example).
+	 *
+	 * @param recorder the recorder or null to stop recording
+	 * @return this instance to provide a fluent interface
+	 */
+	public DataMap<K, V> recordStats(final StatsRecorder recorder) {
+		stats = recorder;
+		return this;
+	}
+
+	/**
+	 * Gets the statistics of this map.
+	 *
+	 * @return the snapshot, or {@link StatsSnapshot#EMPTY}, if this map doesn't
+	 *         record statistics
+	 */
+	public StatsSnapshot stats() {
+		StatsRecorder recorder = stats;
+		return recorder == null ? StatsSnapshot.EMPTY : recorder.snapshot();
+	}
+
+	private void recordLookup(final V value) {
+		StatsRecorder recorder = stats;
+		if (recorder == null)
+			return;
+		if (value != null)
+			recorder.recordHit();
+		else
+			recorder.recordMiss();
+	}
+
 	public synchronized DataMap<K, V> put(final K key, final V value) {
-		map.put(key, value);
+		StatsRecorder recorder = stats;
+		if (recorder == null) {
+			map.put(key, value);
+			return this;
+		}
+		recorder.recordPut();
+		recorder.recordEvictions(putAndCountEvictions(key, value));
 		return this;
 	}
 
+	/**
+	 * Puts the given entry and returns the number of entries that were dropped
+	 * because of it.
+	 */
+	synchronized int putAndCountEvictions(final K key, final V value) {
+		int expected = map.size() + (map.containsKey(key) ? 0 : 1);
+		map.put(key, value);
+		return expected - map.size();
+	}
+
 	public synchronized Collection<V> values() {
 		return map.values();
 	}
@@ -54,6 +159,15 @@ public class DataMap<K, V> {
 	}
 
 	public synchronized V get(final K key) {
+		V value = map.get(key);
+		recordLookup(value);
+		return value;
+	}
+
+	/**
+	 * Gets the value of the given key without recording a hit or a miss.
+	 */
+	synchronized V peek(final K key) {
 		return map.get(key);
 	}
 
@@ -65,12 +179,86 @@ public class DataMap<K, V> {
 		return map.size();
 	}
 
+	/**
+	 * Gets the value of the given key, loading it if it's missing.
+	 * <p>
+	 * If other threads are loading the same key at the same time, only one of
+	 * them calls the loader and the others wait for its result. If the
+	 * eviction-policy has a {@code refreshAfterWrite} time that has passed for
+	 * the entry, the current value is returned and the entry is reloaded in the
+	 * background.
+	 *
+	 * @param key    the key
+	 * @param loader the function loading the value of a missing key; may return
+	 *               null, in which case nothing is stored
+	 * @return the value or null, if the loader returned null
+	 */
+	public V computeIfAbsent(final K key, final Function<? super K, ? extends V> loader) {
+		return loading.computeIfAbsent(key, loader);
+	}
+
+	/**
+	 * Gets the value of the given key, loading it asynchronously if it's
+	 * missing.
+	 * <p>
+	 * Concurrent misses of the same key share a single call of the loader and
+	 * entries due for a refresh are reloaded in the background, just like in
+	 * {@link #computeIfAbsent(Object, Function)}.
+	 *
+	 * @param key    the key
+	 * @param loader the function starting to load the value of a missing key
+	 * @return a future completing with the value
+	 */
+	public CompletableFuture<V> computeIfAbsentAsync(final K key,
+			final Function<? super K, ? extends CompletableFuture<? extends V>> loader) {
+		return loading.computeIfAbsentAsync(key, loader);
+	}
+
+	/**
+	 * Gets the values of all the given keys, loading the missing ones with a
+	 * single call of the bulk-loader.
+	 * <p>
+	 * Keys that are already being loaded by other threads aren't passed to the
+	 * bulk-loader; their loads are awaited instead.
+	 *
+	 * @param keys       the keys
+	 * @param bulkLoader the function loading the values of all missing keys; keys
+	 *                   missing in the returned map are missing in the result as
+	 *                   well
+	 * @return a map of all keys that have a value
+	 */
+	public Map<K, V> getAll(final Collection<? extends K> keys,
+			final Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> bulkLoader) {
+		return loading.getAll(keys, bulkLoader);
+	}
+
+	/**
+	 * Tells if the entry of the given key is due for a reload according to the
+	 * eviction-policy.
+	 */
+	synchronized boolean needsRefresh(final K key) {
+		return map instanceof SizeLimitedHashMap && ((SizeLimitedHashMap<K, V>) map).needsRefresh(key);
+	}
+
+	/**
+	 * Removes all expired entries, if the eviction-policy of this map lets
+	 * entries expire.<br>
+	 * Expired entries are removed lazily otherwise, so you may want to call this
+	 * periodically from a background task.
+	 */
+	public synchronized void cleanUp() {
+		if (map instanceof SizeLimitedHashMap)
+			((SizeLimitedHashMap<K, V>) map).cleanUp();
+	}
+
 	public synchronized Map<K, V> getMapClone() {
+		cleanUp();
 		return new HashMap<>(map);
 	}
 
 	public synchronized Map<K, V> getMapCloneAndClear() {
 		Map<K, V> clone;
+		cleanUp();
 		clone = new HashMap<>(map);
 		map.clear();
 		return clone;
@@ -1,39 +1,157 @@
 package info.unterrainer.commons.jreutils.collections;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
-
-import org.apache.commons.collections4.queue.CircularFifoQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * A synchronized, size-limited FIFO-queue.
+ * <p>
+ * Consumers may either poll it or block until elements arrive using
+ * {@link #take()}, {@link #poll(long, TimeUnit)} or
+ * {@link #drainTo(Collection, int, long, TimeUnit)}. It's guarded by a
+ * {@link ReentrantLock} instead of a monitor, so blocked virtual threads don't
+ * pin their carrier thread.
+ * <p>
+ * The elements are stored in fixed-size segments that are only ever appended
+ * to. Polling advances the head and drops segments once they are used up.
+ * Since no slot is ever overwritten, {@link #snapshot()} is able to hand out a
+ * consistent, read-only view sharing those segments instead of copying all
+ * elements.<br>
+ * Slots are cleared when their element is removed, so polled and evicted
+ * elements may be garbage-collected. Only segments that existed when the last
+ * snapshot was taken keep their elements until the head has passed them.
  */
 public class DataQueue<T> {
 
-	private CircularFifoQueue<T> queue;
+	private static final int SEGMENT_SIZE = 1024;
+
+	private final int maxSize;
+	private final int segmentSize;
+	private ArrayDeque<Object[]> segments = new ArrayDeque<>();
+	private int head;
+	private int tail;
+	private int size;
+	/**
+	 * The number of segments at the head that snapshots may still reference, so
+	 * their slots must not be cleared.
+	 */
+	private int sharedSegments;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private Consumer<T> evictionListener;
+	private StatsRecorder stats;
 
 	public DataQueue(final int maxSize) {
 		this(maxSize, (Collection<T>) null);
 	}
 
 	public DataQueue(final int maxSize, final Collection<T> collection) {
-		queue = new CircularFifoQueue<>(maxSize);
+		if (maxSize <= 0)
+			throw new IllegalArgumentException("The size must be greater than 0.");
+		this.maxSize = maxSize;
+		segmentSize = Math.min(SEGMENT_SIZE, maxSize);
 		if (collection != null)
 			for (T element : collection)
-				queue.offer(element);
+				offer(element);
 	}
 
 	public DataQueue(final int maxSize, final T[] array) {
-		queue = new CircularFifoQueue<>(maxSize);
-		if (array != null)
-			for (T element : array)
-				queue.offer(element);
+		this(maxSize, array == null ? null : List.of(array));
+	}
+
+	/**
+	 * Sets a listener that gets called with every element that is dropped from
+	 * the head of this queue, because a new element was offered while the queue
+	 * was full.
+	 * <p>
+	 * The listener is called synchronously while holding the lock of this queue.
+	 *
+	 * @param evictionListener the listener or null to remove it
+	 * @return this instance to provide a fluent interface
+	 */
+	public DataQueue<T> onEviction(final Consumer<T> evictionListener) {
+		lock.lock();
+		try {
+			this.evictionListener = evictionListener;
+			return this;
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
-	 * Inserts the specified element into this queue if it is possible to do so
-	 * immediately without violating capacity restrictions.
+	 * Starts recording statistics of this queue using the given recorder: puts,
+	 * evictions, the high-water mark of its size, the number of elements taken
+	 * from it (as hits) and polls of an empty queue (as misses).
+	 *
+	 * @param recorder the recorder or null to stop recording
+	 * @return this instance to provide a fluent interface
+	 */
+	public DataQueue<T> recordStats(final StatsRecorder recorder) {
+		lock.lock();
+		try {
+			stats = recorder;
+			return this;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Starts recording statistics of this queue.
+	 *
+	 * @return this instance to provide a fluent interface
+	 * @see #recordStats(StatsRecorder)
+	 */
+	public DataQueue<T> recordStats() {
+		return recordStats(new StatsRecorder());
+	}
+
+	/**
+	 * Gets the statistics of this queue.
+	 *
+	 * @return the snapshot, or {@link StatsSnapshot#EMPTY}, if this queue doesn't
+	 *         record statistics
+	 */
+	public StatsSnapshot stats() {
+		lock.lock();
+		try {
+			return stats == null ? StatsSnapshot.EMPTY : stats.snapshot();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private T taken(final T element) {
+		if (stats != null)
+			if (element != null)
+				stats.recordHit();
+			else
+				stats.recordMiss();
+		return element;
+	}
+
+	private int taken(final int count) {
+		if (stats != null)
+			if (count > 0)
+				stats.recordHits(count);
+			else
+				stats.recordMiss();
+		return count;
+	}
+
+	/**
+	 * Inserts the specified element into this queue. If the queue is full, the
+	 * oldest element is dropped and reported to the eviction-listener, if there is
+	 * one.
 	 *
 	 * @param element the element to add
 	 * @return this instance to provide a fluent interface
@@ -44,9 +162,70 @@ public class DataQueue<T> {
 	 * @throws IllegalArgumentException if some property of this element prevents it
 	 *                                  from being added to this queue
 	 */
-	public synchronized DataQueue<T> offer(final T element) {
-		queue.offer(element);
-		return this;
+	public DataQueue<T> offer(final T element) {
+		if (element == null)
+			throw new NullPointerException("This queue does not permit null elements.");
+		lock.lock();
+		try {
+			T evicted = null;
+			if (size == maxSize)
+				evicted = dequeue();
+			if (segments.isEmpty() || tail == segmentSize) {
+				segments.addLast(new Object[segmentSize]);
+				tail = 0;
+			}
+			segments.peekLast()[tail++] = element;
+			size++;
+			notEmpty.signal();
+			if (stats != null) {
+				stats.recordPut();
+				stats.recordSize(size);
+				if (evicted != null)
+					stats.recordEviction();
+			}
+			if (evicted != null && evictionListener != null)
+				evictionListener.accept(evicted);
+			return this;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private T dequeue() {
+		if (size == 0)
+			return null;
+		T element = (T) segments.peekFirst()[head];
+		release(1);
+		return element;
+	}
+
+	/**
+	 * Removes the given number of elements from the head of the current head
+	 * segment.
+	 */
+	private void release(final int length) {
+		if (sharedSegments == 0)
+			Arrays.fill(segments.peekFirst(), head, head + length, null);
+		head += length;
+		size -= length;
+		if (size == 0)
+			reset();
+		else if (head == segmentSize) {
+			segments.pollFirst();
+			head = 0;
+			if (sharedSegments > 0)
+				sharedSegments--;
+		}
+	}
+
+	private void reset() {
+		// Don't clear the segments, since snapshots may still reference them.
+		segments = new ArrayDeque<>();
+		sharedSegments = 0;
+		head = 0;
+		tail = 0;
+		size = 0;
 	}
 
 	/**
@@ -55,8 +234,61 @@ public class DataQueue<T> {
 	 *
 	 * @return the head of this queue, or {@code null} if this queue is empty
 	 */
-	public synchronized T poll() {
-		return queue.poll();
+	public T poll() {
+		lock.lock();
+		try {
+			return taken(dequeue());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Retrieves and removes the head of this queue, waiting if necessary until an
+	 * element becomes available.
+	 *
+	 * @return the head of this queue
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public T take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (size == 0)
+				notEmpty.await();
+			return taken(dequeue());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Retrieves and removes the head of this queue, waiting up to the specified
+	 * wait time if necessary for an element to become available.
+	 *
+	 * @param timeout how long to wait before giving up, in units of {@code unit}
+	 * @param unit    the unit of the {@code timeout} parameter
+	 * @return the head of this queue, or {@code null} if the specified waiting time
+	 *         elapses before an element is available
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public T poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			if (!awaitNotEmpty(unit.toNanos(timeout)))
+				return taken((T) null);
+			return taken(dequeue());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean awaitNotEmpty(long nanos) throws InterruptedException {
+		while (size == 0) {
+			if (nanos <= 0L)
+				return false;
+			nanos = notEmpty.awaitNanos(nanos);
+		}
+		return true;
 	}
 
 	/**
@@ -65,15 +297,152 @@ public class DataQueue<T> {
 	 *
 	 * @return the head of this queue, or {@code null} if this queue is empty
 	 */
-	public synchronized T peek() {
-		return queue.peek();
+	@SuppressWarnings("unchecked")
+	public T peek() {
+		lock.lock();
+		try {
+			if (size == 0)
+				return null;
+			return (T) segments.peekFirst()[head];
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes up to the given number of elements from the head of this queue and
+	 * adds them to the given collection, all while holding the lock only once.
+	 *
+	 * @param collection  the collection to transfer the elements to
+	 * @param maxElements the maximum number of elements to transfer
+	 * @return the number of elements transferred
+	 */
+	public int drainTo(final Collection<? super T> collection, final int maxElements) {
+		lock.lock();
+		try {
+			int count = Math.max(0, Math.min(maxElements, size));
+			for (int i = 0; i < count; i++)
+				collection.add(dequeue());
+			return taken(count);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes up to the given number of elements from the head of this queue and
+	 * adds them to the given collection, waiting up to the specified wait time if
+	 * necessary for at least one element to become available.
+	 *
+	 * @param collection  the collection to transfer the elements to
+	 * @param maxElements the maximum number of elements to transfer
+	 * @param timeout     how long to wait before giving up, in units of
+	 *                    {@code unit}
+	 * @param unit        the unit of the {@code timeout} parameter
+	 * @return the number of elements transferred, which is 0 if the specified
+	 *         waiting time elapsed before an element was available
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public int drainTo(final Collection<? super T> collection, final int maxElements, final long timeout,
+			final TimeUnit unit) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			if (maxElements <= 0 || !awaitNotEmpty(unit.toNanos(timeout)))
+				return taken(0);
+			return drainTo(collection, maxElements);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes as many elements from the head of this queue as fit into the given
+	 * buffer and copies them to the buffer, starting at index 0.
+	 * <p>
+	 * Since the buffer may be reused, this allows consuming the queue in batches
+	 * without allocating anything.
+	 *
+	 * @param buffer the array to transfer the elements to
+	 * @return the number of elements transferred
+	 */
+	public int drainTo(final T[] buffer) {
+		lock.lock();
+		try {
+			int count = Math.min(buffer.length, size);
+			int copied = 0;
+			while (copied < count) {
+				int length = Math.min(count - copied, segmentSize - head);
+				System.arraycopy(segments.peekFirst(), head, buffer, copied, length);
+				copied += length;
+				release(length);
+			}
+			return taken(count);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of elements in this queue.
+	 *
+	 * @return the number of elements
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
 	 * Clears this queues' contents.
 	 */
-	public synchronized void clear() {
-		queue.clear();
+	public void clear() {
+		lock.lock();
+		try {
+			reset();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets a read-only view of the contents of this queue at the time of the
+	 * call.
+	 * <p>
+	 * The view isn't affected by later changes to this queue and doesn't copy the
+	 * elements, so it's cheap to get even for large queues (it only copies one
+	 * reference per 1024 elements).
+	 *
+	 * @return the snapshot
+	 */
+	public List<T> snapshot() {
+		lock.lock();
+		try {
+			sharedSegments = segments.size();
+			return new QueueSnapshot<>(segments.toArray(new Object[0][]), head, size, segmentSize);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets a read-only view of the contents of this queue like
+	 * {@link #snapshot()}, that is only valid until this queue is changed the
+	 * next time. Unlike a snapshot, it doesn't keep removed elements from being
+	 * garbage-collected.
+	 *
+	 * @return the view
+	 */
+	List<T> view() {
+		lock.lock();
+		try {
+			return new QueueSnapshot<>(segments.toArray(new Object[0][]), head, size, segmentSize);
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
@@ -81,10 +450,13 @@ public class DataQueue<T> {
 	 *
 	 * @return the list
 	 */
-	public synchronized List<T> getListClone() {
-		List<T> list = new ArrayList<>();
-		list.addAll(queue);
-		return list;
+	public List<T> getListClone() {
+		lock.lock();
+		try {
+			return new ArrayList<>(view());
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
@@ -93,10 +465,14 @@ public class DataQueue<T> {
 	 *
 	 * @return the list
 	 */
-	public synchronized List<T> getListCloneAndClear() {
-		List<T> list = new ArrayList<>();
-		list.addAll(queue);
-		queue.clear();
-		return list;
+	public List<T> getListCloneAndClear() {
+		lock.lock();
+		try {
+			List<T> list = getListClone();
+			reset();
+			return list;
+		} finally {
+			lock.unlock();
+		}
 	}
 }
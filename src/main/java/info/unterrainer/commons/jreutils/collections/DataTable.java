@@ -1,22 +1,41 @@
 package info.unterrainer.commons.jreutils.collections;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.DoubleSummaryStatistics;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.LongSummaryStatistics;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.DoublePredicate;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import org.apache.commons.collections4.MultiValuedMap;
-import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
-
+import info.unterrainer.commons.jreutils.DoubleBufferedFile;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 
 /**
- * A synchronized data-structure acting as a table. You may create indexes for
+ * A thread-safe data-structure acting as a table. You may create indexes for
  * various columns and later on retrieve sets of index-keys or the indexed
  * values.<br>
  * You also may specify fragmenting indexes, that define an additional filter
@@ -26,7 +45,20 @@ import lombok.experimental.Accessors;
  * You may add multi-indexes. Those indexes don't reference a unique item, but
  * rather a list of items. You have to keep in mind which kind of index it was
  * when you added it and you have to use the proper accessors and mutators
- * respective to the kind of index you're manipulating.
+ * respective to the kind of index you're manipulating.<br>
+ * If your keys are primitive {@code long} or {@code int} values, you may add
+ * long- or int-indexes. Those don't box their keys and store them in flat
+ * arrays instead of hash-map-nodes, so they need a lot less heap per row.<br>
+ * Sorted indexes keep their elements ordered by key and answer range-queries
+ * like 'all rows with a timestamp between X and Y' or 'the top N by score'.<br>
+ * Use {@link #query()} to combine lookups on several indexes.<br>
+ * Access is guarded by a read-write-lock. Lookups only take the shared
+ * read-lock, so any number of readers may run in parallel, whereas mutators
+ * (adding, polling, removing, clearing, loading) take the exclusive write-lock
+ * and keep the queue and all indexes consistent.<br>
+ * When the table is full, adding an element evicts the oldest one from the
+ * queue and from all indexes, so memory stays bounded by {@code maxEntries}.<br>
+ * Use {@link #changes()} to subscribe to an ordered stream of all mutations.
  */
 @Accessors(fluent = true)
 public class DataTable<T> {
@@ -36,18 +68,303 @@ public class DataTable<T> {
 	@Getter
 	private DataQueue<T> queue;
 
-	private HashMap<String, Function<T, Object>> keySuppliers = new HashMap<>();
-	private HashMap<String, Function<T, Boolean>> filters = new HashMap<>();
-	private HashMap<String, DataMap<Object, T>> maps = new HashMap<>();
+	private HashMap<String, UniqueIndex<T>> indexes = new HashMap<>();
+	private HashMap<String, MultiIndex<T>> multiIndexes = new HashMap<>();
+	private HashMap<String, LongHashIndex<T>> longIndexes = new HashMap<>();
+	private HashMap<String, SortedIndex<T>> sortedIndexes = new HashMap<>();
+	private List<DataIndex<T>> allIndexes = new ArrayList<>();
+	private HashMap<String, DoubleColumn<T>> doubleColumns = new HashMap<>();
+	private HashMap<String, LongColumn<T>> longColumns = new HashMap<>();
+	private List<DataColumn<T>> allColumns = new ArrayList<>();
+	private int indexVersion;
+
+	private Consumer<T> evictionListener;
+	private long evictions;
+	private StatsRecorder stats;
+
+	private SubmissionPublisher<TableChange<T>> changes;
+	private long sequence;
+	private List<TableChange<T>> pendingChanges = new ArrayList<>();
 
-	private HashMap<String, Function<T, Object>> multiKeySuppliers = new HashMap<>();
-	private HashMap<String, Function<T, Boolean>> multiFilters = new HashMap<>();
-	private HashMap<String, MultiValuedMap<Object, T>> multiMaps = new HashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final ReentrantLock publishLock = new ReentrantLock(true);
 
 	public DataTable(final Class<T> clazz, final int maxEntries) {
 		this.clazz = clazz;
 		this.maxEntries = maxEntries;
-		queue = new DataQueue<>(maxEntries);
+		queue = new DataQueue<T>(maxEntries).onEviction(this::evict);
+	}
+
+	/**
+	 * Sets a listener that gets called with every element that is evicted from
+	 * this DataTable, because a new element was added while the DataTable was
+	 * full.
+	 * <p>
+	 * The listener is called after the element has been dropped from all indexes
+	 * while holding the write-lock, so keep it short and don't call back into
+	 * this DataTable from another thread.
+	 *
+	 * @param evictionListener the listener or null to remove it
+	 * @return this instance to provide a fluent interface
+	 */
+	public DataTable<T> onEviction(final Consumer<T> evictionListener) {
+		lock.writeLock().lock();
+		try {
+			this.evictionListener = evictionListener;
+			return this;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void evict(final T element) {
+		evictions++;
+		for (DataColumn<T> column : allColumns)
+			column.dropHead();
+		if (stats != null)
+			stats.recordEviction();
+		for (DataIndex<T> index : allIndexes)
+			if (index.remove(element)) {
+				index.evictions++;
+				if (index.stats != null)
+					index.stats.recordEviction();
+			}
+		if (evictionListener != null)
+			evictionListener.accept(element);
+		changed(TableChange.Type.EVICT, element);
+	}
+
+	/**
+	 * Gets a publisher of all changes to this DataTable, in the order they were
+	 * applied: inserts, evictions, polls and clears. Loading replaces the contents
+	 * and is published as a clear, followed by an insert per row.
+	 * <p>
+	 * Changes are delivered asynchronously using the common fork-join-pool and a
+	 * buffer of {@link Flow#defaultBufferSize()} changes per subscriber, unless
+	 * configured otherwise using {@link #publishChanges(Executor, int)}. When the
+	 * buffer of a subscriber is full, mutators of this DataTable wait for it
+	 * (backpressure), so don't mutate this DataTable from within a subscriber.
+	 * While a mutator waits, the next one does so holding the write-lock, which
+	 * blocks readers as well. Size the buffers, so subscribers keep up.
+	 * <p>
+	 * A mirror of this DataTable subscribes first, then takes a
+	 * {@link #snapshot()} and applies all changes it receives to it. Changes that
+	 * are already part of the snapshot don't do any harm, as long as the mirror
+	 * applies them idempotently.
+	 *
+	 * @return the publisher
+	 */
+	public Flow.Publisher<TableChange<T>> changes() {
+		lock.writeLock().lock();
+		try {
+			if (changes == null)
+				changes = new SubmissionPublisher<>(ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+			return changes;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Sets the executor delivering the changes of this DataTable and the maximum
+	 * number of changes buffered per subscriber. Closes the current publisher, if
+	 * there is one, which completes its subscriptions.
+	 *
+	 * @param executor          the executor to deliver the changes with
+	 * @param maxBufferCapacity the maximum number of buffered changes per
+	 *                          subscriber
+	 * @return this instance to provide a fluent interface
+	 * @see #changes()
+	 */
+	public DataTable<T> publishChanges(final Executor executor, final int maxBufferCapacity) {
+		lock.writeLock().lock();
+		try {
+			closePublisher();
+			changes = new SubmissionPublisher<>(executor, maxBufferCapacity);
+			return this;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Stops publishing the changes of this DataTable and completes all
+	 * subscriptions.
+	 */
+	public void closeChanges() {
+		lock.writeLock().lock();
+		try {
+			closePublisher();
+			changes = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void closePublisher() {
+		if (changes == null)
+			return;
+		// Wait for changes that are still being published.
+		publishLock.lock();
+		try {
+			changes.close();
+		} finally {
+			publishLock.unlock();
+		}
+	}
+
+	private void changed(final TableChange.Type type, final T element) {
+		if (changes != null && changes.hasSubscribers())
+			pendingChanges.add(new TableChange<>(++sequence, type, element));
+	}
+
+	/**
+	 * Releases the write-lock and then publishes the changes collected while
+	 * holding it. The publish-lock is taken before the write-lock is released, so
+	 * the batches of concurrent mutators are published in the order they were
+	 * applied.
+	 * <p>
+	 * A single mutator waiting for a subscriber with a full buffer doesn't block
+	 * readers, since it already released the write-lock. But the next mutator
+	 * waits for the publish-lock while still holding the write-lock, so from then
+	 * on readers wait for the slow subscriber as well.
+	 */
+	private void unlockAndPublish() {
+		if (pendingChanges.isEmpty()) {
+			lock.writeLock().unlock();
+			return;
+		}
+		List<TableChange<T>> batch = pendingChanges;
+		SubmissionPublisher<TableChange<T>> publisher = changes;
+		pendingChanges = new ArrayList<>();
+		publishLock.lock();
+		lock.writeLock().unlock();
+		try {
+			for (TableChange<T> change : batch)
+				publisher.submit(change);
+		} finally {
+			publishLock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of elements that have been evicted from this DataTable,
+	 * because it was full.
+	 *
+	 * @return the number of evictions
+	 */
+	public long evictions() {
+		lock.readLock().lock();
+		try {
+			return evictions;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of elements that have been evicted from the given index (or
+	 * long-, int- or sorted index), because they were evicted from this DataTable.
+	 *
+	 * @param name the name of the index
+	 * @return the number of evictions
+	 * @throws IllegalArgumentException if there is no such index
+	 */
+	public long evictions(final String name) {
+		lock.readLock().lock();
+		try {
+			DataIndex<T> index = indexes.get(name);
+			if (index == null)
+				index = longIndexes.get(name);
+			if (index == null)
+				index = sortedIndexes.get(name);
+			return existing(index, name).evictions;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of elements that have been evicted from the given
+	 * multi-index, because they were evicted from this DataTable.
+	 *
+	 * @param name the name of the multi-index
+	 * @return the number of evictions
+	 * @throws IllegalArgumentException if there is no such multi-index
+	 */
+	public long multiEvictions(final String name) {
+		lock.readLock().lock();
+		try {
+			return existing(multiIndexes.get(name), name).evictions;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Starts recording statistics of this DataTable and of each of its indexes.
+	 * <p>
+	 * The table records puts, evictions, the high-water mark of its size and the
+	 * hits and misses of all lookups by key. Every index records its own hits,
+	 * misses and evictions.
+	 *
+	 * @return this instance to provide a fluent interface
+	 */
+	public DataTable<T> recordStats() {
+		lock.writeLock().lock();
+		try {
+			stats = new StatsRecorder();
+			for (DataIndex<T> index : allIndexes)
+				index.stats = new StatsRecorder();
+			return this;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the statistics of this DataTable.
+	 *
+	 * @return the snapshot, or {@link StatsSnapshot#EMPTY}, if this DataTable
+	 *         doesn't record statistics
+	 */
+	public StatsSnapshot stats() {
+		lock.readLock().lock();
+		try {
+			return stats == null ? StatsSnapshot.EMPTY : stats.snapshot();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the statistics of the index (of any kind) with the given name.
+	 *
+	 * @param name the name of the index
+	 * @return the snapshot, or {@link StatsSnapshot#EMPTY}, if this DataTable
+	 *         doesn't record statistics
+	 */
+	public StatsSnapshot stats(final String name) {
+		lock.readLock().lock();
+		try {
+			DataIndex<T> found = existing(anyIndex(name), name);
+			return found.stats == null ? StatsSnapshot.EMPTY : found.stats.snapshot();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private <R> R lookedUp(final DataIndex<T> index, final R result, final boolean hit) {
+		if (stats != null) {
+			if (hit) {
+				stats.recordHit();
+				index.stats.recordHit();
+			} else {
+				stats.recordMiss();
+				index.stats.recordMiss();
+			}
+		}
+		return result;
 	}
 
 	public <K> DataTable<T> addIndex(final String name, final Function<T, K> keySupplier) {
@@ -67,11 +384,14 @@ public class DataTable<T> {
 	@SuppressWarnings("unchecked")
 	public <K> DataTable<T> addIndex(final String name, final Function<T, K> keySupplier,
 			final Function<T, Boolean> filter) {
-		keySuppliers.put(name, (Function<T, Object>) keySupplier);
-		if (filter != null)
-			filters.put(name, filter);
-		maps.put(name, new DataMap<>(maxEntries));
-		return this;
+		lock.writeLock().lock();
+		try {
+			UniqueIndex<T> index = new UniqueIndex<>(name, (Function<T, Object>) keySupplier, filter, maxEntries);
+			register(indexes.put(name, index), index);
+			return this;
+		} finally {
+			lock.writeLock().unlock();
+		}
 	}
 
 	/**
@@ -83,11 +403,402 @@ public class DataTable<T> {
 	@SuppressWarnings("unchecked")
 	public <K> DataTable<T> addMultiIndex(final String name, final Function<T, K> keySupplier,
 			final Function<T, Boolean> filter) {
-		multiKeySuppliers.put(name, (Function<T, Object>) keySupplier);
-		if (filter != null)
-			multiFilters.put(name, filter);
-		multiMaps.put(name, new ArrayListValuedHashMap<>(maxEntries));
-		return this;
+		lock.writeLock().lock();
+		try {
+			MultiIndex<T> index = new MultiIndex<>(name, (Function<T, Object>) keySupplier, filter, maxEntries);
+			register(multiIndexes.put(name, index), index);
+			return this;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public DataTable<T> addLongIndex(final String name, final ToLongFunction<T> keySupplier) {
+		return addLongIndex(name, keySupplier, null);
+	}
+
+	/**
+	 * Adds an index with primitive {@code long} keys.<br>
+	 * The keys aren't boxed and are stored in an open-addressing hash-table, so
+	 * it needs a lot less heap per row than an index added by
+	 * {@link #addIndex(String, Function, Function)}.<br>
+	 * Be sure to manipulate these indexes using the appropriate accessors or
+	 * mutators.
+	 */
+	public DataTable<T> addLongIndex(final String name, final ToLongFunction<T> keySupplier,
+			final Function<T, Boolean> filter) {
+		lock.writeLock().lock();
+		try {
+			LongHashIndex<T> index = new LongHashIndex<>(name, keySupplier, filter);
+			register(longIndexes.put(name, index), index);
+			return this;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public DataTable<T> addIntIndex(final String name, final ToIntFunction<T> keySupplier) {
+		return addIntIndex(name, keySupplier, null);
+	}
+
+	/**
+	 * Adds an index with primitive {@code int} keys.<br>
+	 * Shares the implementation (and namespace) of the long-indexes, so you may
+	 * use the accessors for either of them.<br>
+	 * Be sure to manipulate these indexes using the appropriate accessors or
+	 * mutators.
+	 */
+	public DataTable<T> addIntIndex(final String name, final ToIntFunction<T> keySupplier,
+			final Function<T, Boolean> filter) {
+		return addLongIndex(name, e -> keySupplier.applyAsInt(e), filter);
+	}
+
+	public <K extends Comparable<? super K>> DataTable<T> addSortedIndex(final String name,
+			final Function<T, K> keySupplier) {
+		return addSortedIndex(name, keySupplier, null, null);
+	}
+
+	public <K> DataTable<T> addSortedIndex(final String name, final Function<T, K> keySupplier,
+			final Comparator<? super K> comparator) {
+		return addSortedIndex(name, keySupplier, comparator, null);
+	}
+
+	/**
+	 * Adds a sorted index. Those indexes keep their elements ordered by key (and
+	 * in insertion-order for equal keys) and allow for range-queries.<br>
+	 * Be sure to manipulate these indexes using the appropriate accessors or
+	 * mutators.
+	 *
+	 * @param comparator the comparator to order the keys by or null to use their
+	 *                   natural ordering
+	 */
+	@SuppressWarnings("unchecked")
+	public <K> DataTable<T> addSortedIndex(final String name, final Function<T, K> keySupplier,
+			final Comparator<? super K> comparator, final Function<T, Boolean> filter) {
+		lock.writeLock().lock();
+		try {
+			SortedIndex<T> index = new SortedIndex<>(name, (Function<T, Object>) keySupplier,
+					(Comparator<Object>) comparator, filter);
+			register(sortedIndexes.put(name, index), index);
+			return this;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a column of primitive {@code double} values, extracted from every row
+	 * and kept in a ring-array alongside the queue.
+	 * <p>
+	 * Aggregating a column ({@link #summarizeDouble(String, DoublePredicate)},
+	 * {@link #doubleHistogram(String, double, double, int, DoublePredicate)}) runs
+	 * as a tight loop over that array instead of dereferencing every row.
+	 *
+	 * @param name      the name of the column
+	 * @param extractor the function extracting the value of a row
+	 * @return this instance to provide a fluent interface
+	 */
+	public DataTable<T> addDoubleColumn(final String name, final ToDoubleFunction<T> extractor) {
+		lock.writeLock().lock();
+		try {
+			DoubleColumn<T> column = new DoubleColumn<>(name, extractor, maxEntries);
+			registerColumn(doubleColumns.put(name, column), column);
+			return this;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a column of primitive {@code long} values, extracted from every row and
+	 * kept in a ring-array alongside the queue.
+	 *
+	 * @param name      the name of the column
+	 * @param extractor the function extracting the value of a row
+	 * @return this instance to provide a fluent interface
+	 * @see #addDoubleColumn(String, ToDoubleFunction)
+	 */
+	public DataTable<T> addLongColumn(final String name, final ToLongFunction<T> extractor) {
+		lock.writeLock().lock();
+		try {
+			LongColumn<T> column = new LongColumn<>(name, extractor, maxEntries);
+			registerColumn(longColumns.put(name, column), column);
+			return this;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void registerColumn(final DataColumn<T> replaced, final DataColumn<T> column) {
+		if (replaced != null)
+			allColumns.remove(replaced);
+		allColumns.add(column);
+		forEachRow(column::append);
+	}
+
+	private <C extends DataColumn<T>> C existingColumn(final C column, final String name) {
+		if (column == null)
+			throw new IllegalArgumentException(String.format("There is no such column [%s].", name));
+		return column;
+	}
+
+	/**
+	 * Gets count, sum, min, average and max of a double-column.
+	 *
+	 * @param name the name of the column
+	 * @return the statistics
+	 */
+	public DoubleSummaryStatistics summarizeDouble(final String name) {
+		return summarizeDouble(name, null, false);
+	}
+
+	/**
+	 * Gets count, sum, min, average and max of the values of a double-column that
+	 * satisfy the given filter.
+	 *
+	 * @param name   the name of the column
+	 * @param filter the filter or null
+	 * @return the statistics
+	 */
+	public DoubleSummaryStatistics summarizeDouble(final String name, final DoublePredicate filter) {
+		return summarizeDouble(name, filter, false);
+	}
+
+	/**
+	 * Gets count, sum, min, average and max of the values of a double-column that
+	 * satisfy the given filter.
+	 *
+	 * @param name     the name of the column
+	 * @param filter   the filter or null
+	 * @param parallel if true, large tables are aggregated in parallel using the
+	 *                 common fork-join-pool; so your filter has to be thread-safe
+	 * @return the statistics
+	 */
+	public DoubleSummaryStatistics summarizeDouble(final String name, final DoublePredicate filter,
+			final boolean parallel) {
+		lock.readLock().lock();
+		try {
+			return existingColumn(doubleColumns.get(name), name).summarize(filter, parallel);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Counts the values of a double-column per bucket. The range {@code [min,
+	 * max)} is split into buckets of equal width; values outside of it are
+	 * ignored.
+	 *
+	 * @param name    the name of the column
+	 * @param min     the lower bound (inclusive)
+	 * @param max     the upper bound (exclusive)
+	 * @param buckets the number of buckets
+	 * @param filter  the filter or null
+	 * @return the count per bucket
+	 */
+	public long[] doubleHistogram(final String name, final double min, final double max, final int buckets,
+			final DoublePredicate filter) {
+		lock.readLock().lock();
+		try {
+			return existingColumn(doubleColumns.get(name), name).histogram(min, max, buckets, filter);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets count, sum, min, average and max of a long-column.
+	 *
+	 * @param name the name of the column
+	 * @return the statistics
+	 */
+	public LongSummaryStatistics summarizeLong(final String name) {
+		return summarizeLong(name, null, false);
+	}
+
+	/**
+	 * Gets count, sum, min, average and max of the values of a long-column that
+	 * satisfy the given filter.
+	 *
+	 * @param name   the name of the column
+	 * @param filter the filter or null
+	 * @return the statistics
+	 */
+	public LongSummaryStatistics summarizeLong(final String name, final LongPredicate filter) {
+		return summarizeLong(name, filter, false);
+	}
+
+	/**
+	 * Gets count, sum, min, average and max of the values of a long-column that
+	 * satisfy the given filter.
+	 *
+	 * @param name     the name of the column
+	 * @param filter   the filter or null
+	 * @param parallel if true, large tables are aggregated in parallel using the
+	 *                 common fork-join-pool; so your filter has to be thread-safe
+	 * @return the statistics
+	 */
+	public LongSummaryStatistics summarizeLong(final String name, final LongPredicate filter,
+			final boolean parallel) {
+		lock.readLock().lock();
+		try {
+			return existingColumn(longColumns.get(name), name).summarize(filter, parallel);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Counts the values of a long-column per bucket. The range {@code [min, max)}
+	 * is split into buckets of equal width; values outside of it are ignored.
+	 *
+	 * @param name    the name of the column
+	 * @param min     the lower bound (inclusive)
+	 * @param max     the upper bound (exclusive)
+	 * @param buckets the number of buckets
+	 * @param filter  the filter or null
+	 * @return the count per bucket
+	 */
+	public long[] longHistogram(final String name, final long min, final long max, final int buckets,
+			final LongPredicate filter) {
+		lock.readLock().lock();
+		try {
+			return existingColumn(longColumns.get(name), name).histogram(min, max, buckets, filter);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Starts a query combining lookups on several indexes and residual filters.
+	 *
+	 * @return the query
+	 * @see DataTableQuery
+	 */
+	public DataTableQuery<T> query() {
+		return new DataTableQuery<>(this);
+	}
+
+	Lock readLock() {
+		return lock.readLock();
+	}
+
+	UniqueIndex<T> uniqueIndex(final String name) {
+		return built(existing(indexes.get(name), name));
+	}
+
+	MultiIndex<T> multiIndex(final String name) {
+		return built(existing(multiIndexes.get(name), name));
+	}
+
+	LongHashIndex<T> longIndex(final String name) {
+		return built(existing(longIndexes.get(name), name));
+	}
+
+	SortedIndex<T> sortedIndex(final String name) {
+		return built(existing(sortedIndexes.get(name), name));
+	}
+
+	/**
+	 * Marks the index (of any kind) with the given name, so that
+	 * {@link #load(Object[], boolean)} doesn't build it right away, but on its
+	 * first lookup. Use this for indexes that are rarely used, to make loading
+	 * faster.
+	 *
+	 * @param name the name of the index
+	 * @return this instance to provide a fluent interface
+	 */
+	public DataTable<T> deferIndex(final String name) {
+		lock.writeLock().lock();
+		try {
+			existing(anyIndex(name), name).deferred = true;
+			return this;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the time it took to build the index (of any kind) with the given name
+	 * the last time this DataTable was loaded (or on its first lookup after that,
+	 * if the index is deferred).
+	 *
+	 * @param name the name of the index
+	 * @return the duration, which is zero, if the index hasn't been built yet
+	 */
+	public Duration buildTime(final String name) {
+		lock.readLock().lock();
+		try {
+			return Duration.ofNanos(existing(anyIndex(name), name).buildNanos);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private DataIndex<T> anyIndex(final String name) {
+		for (DataIndex<T> index : allIndexes)
+			if (index.name.equals(name))
+				return index;
+		return null;
+	}
+
+	private void build(final DataIndex<T> index, final List<T> rows) {
+		long start = System.nanoTime();
+		index.rebuild(rows);
+		index.buildNanos = System.nanoTime() - start;
+		index.stale = false;
+	}
+
+	/**
+	 * Builds the given index, if it's stale. Lookups only hold the read-lock, so
+	 * building is guarded by the index itself; mutators hold the write-lock and
+	 * therefore never run at the same time.
+	 */
+	private <I extends DataIndex<T>> I built(final I index) {
+		if (index != null && index.stale)
+			synchronized (index) {
+				if (index.stale)
+					build(index, queue.view());
+			}
+		return index;
+	}
+
+	private <I extends DataIndex<T>> I existing(final I index, final String name) {
+		if (index == null)
+			throw new IllegalArgumentException(String.format("There is no such index [%s].", name));
+		return index;
+	}
+
+	/**
+	 * Passes all rows to the given consumer. Has to be called while holding the
+	 * lock.
+	 */
+	void forEachRow(final Consumer<T> consumer) {
+		for (T element : queue.view())
+			consumer.accept(element);
+	}
+
+	private void register(final DataIndex<T> replaced, final DataIndex<T> index) {
+		if (replaced != null)
+			allIndexes.remove(replaced);
+		allIndexes.add(index);
+		indexVersion++;
+		if (stats != null)
+			index.stats = new StatsRecorder();
+	}
+
+	/**
+	 * Returns the number of elements in this DataTable.
+	 *
+	 * @return the number of elements
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
 	/**
@@ -97,8 +808,13 @@ public class DataTable<T> {
 	 * @return the head of this DataTable, or {@code null} if this DataTable is
 	 *         empty
 	 */
-	public synchronized T peek() {
-		return queue.peek();
+	public T peek() {
+		lock.readLock().lock();
+		try {
+			return queue.peek();
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
 	/**
@@ -107,19 +823,21 @@ public class DataTable<T> {
 	 *
 	 * @return the head of this queue, or {@code null} if this DataTable is empty
 	 */
-	public synchronized T poll() {
-		T e = queue.poll();
-		for (String name : keySuppliers.keySet()) {
-			Function<T, ?> func = keySuppliers.get(name);
-			DataMap<Object, T> map = maps.get(name);
-			map.remove(func.apply(e));
-		}
-		for (String name : multiKeySuppliers.keySet()) {
-			Function<T, ?> func = multiKeySuppliers.get(name);
-			MultiValuedMap<Object, T> map = multiMaps.get(name);
-			map.removeMapping(func.apply(e), e);
+	public T poll() {
+		lock.writeLock().lock();
+		try {
+			T e = queue.poll();
+			if (e != null) {
+				for (DataIndex<T> index : allIndexes)
+					index.remove(e);
+				for (DataColumn<T> column : allColumns)
+					column.dropHead();
+				changed(TableChange.Type.REMOVE, e);
+			}
+			return e;
+		} finally {
+			unlockAndPublish();
 		}
-		return e;
 	}
 
 	/**
@@ -130,12 +848,24 @@ public class DataTable<T> {
 	 * @param key  the key of the element to retrieve using the given index
 	 * @return the element to retrieve
 	 */
-	public synchronized <K> T get(final String name, final K key) {
-		return maps.get(name).get(key);
+	public <K> T get(final String name, final K key) {
+		lock.readLock().lock();
+		try {
+			UniqueIndex<T> index = built(indexes.get(name));
+			T element = index.map.get(key);
+			return lookedUp(index, element, element != null);
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
-	public synchronized <K> T remove(final String name, final K key) {
-		return maps.get(name).remove(key);
+	public <K> T remove(final String name, final K key) {
+		lock.writeLock().lock();
+		try {
+			return built(indexes.get(name)).map.remove(key);
+		} finally {
+			lock.writeLock().unlock();
+		}
 	}
 
 	/**
@@ -146,12 +876,169 @@ public class DataTable<T> {
 	 * @param key  the key of the element to retrieve using the given multi-index
 	 * @return the collection of elements to retrieve, that may be empty
 	 */
-	public synchronized <K> Collection<T> multiGet(final String name, final K key) {
-		return multiMaps.get(name).get(key);
+	public <K> Collection<T> multiGet(final String name, final K key) {
+		lock.readLock().lock();
+		try {
+			MultiIndex<T> index = built(multiIndexes.get(name));
+			Collection<T> elements = index.map.get(key);
+			return lookedUp(index, elements, !elements.isEmpty());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets an element by a specified long-index without boxing the key.
+	 *
+	 * @param name the name of the long-index
+	 * @param key  the key of the element to retrieve using the given index
+	 * @return the element to retrieve
+	 */
+	public T longGet(final String name, final long key) {
+		lock.readLock().lock();
+		try {
+			LongHashIndex<T> index = built(longIndexes.get(name));
+			T element = index.get(key);
+			return lookedUp(index, element, element != null);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public T longRemove(final String name, final long key) {
+		lock.writeLock().lock();
+		try {
+			return built(longIndexes.get(name)).remove(key);
+		} finally {
+			lock.writeLock().unlock();
+		}
 	}
 
-	public synchronized <K> Collection<T> multiRemove(final String name, final K key) {
-		return multiMaps.get(name).remove(key);
+	public boolean longContainsKey(final String name, final long key) {
+		lock.readLock().lock();
+		try {
+			return built(longIndexes.get(name)).containsKey(key);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets an element by a specified int-index without boxing the key.
+	 *
+	 * @param name the name of the int-index
+	 * @param key  the key of the element to retrieve using the given index
+	 * @return the element to retrieve
+	 */
+	public T intGet(final String name, final int key) {
+		return longGet(name, key);
+	}
+
+	public T intRemove(final String name, final int key) {
+		return longRemove(name, key);
+	}
+
+	public boolean intContainsKey(final String name, final int key) {
+		return longContainsKey(name, key);
+	}
+
+	/**
+	 * Gets the elements of a specified sorted index whose keys are in the given
+	 * range, ordered by key.
+	 *
+	 * @param <K>  the type of the key used by the given sorted index
+	 * @param name the name of the sorted index
+	 * @param from the lower bound (inclusive) or null for no lower bound
+	 * @param to   the upper bound (exclusive) or null for no upper bound
+	 * @return the list of elements, that may be empty
+	 */
+	public <K> List<T> sortedRange(final String name, final K from, final K to) {
+		lock.readLock().lock();
+		try {
+			return built(sortedIndexes.get(name)).toList(from, to);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the elements of a specified sorted index whose keys are strictly less
+	 * than the given key, ordered by key.
+	 */
+	public <K> List<T> sortedHead(final String name, final K to) {
+		return sortedRange(name, null, to);
+	}
+
+	/**
+	 * Gets the elements of a specified sorted index whose keys are greater than or
+	 * equal to the given key, ordered by key.
+	 */
+	public <K> List<T> sortedTail(final String name, final K from) {
+		return sortedRange(name, from, null);
+	}
+
+	/**
+	 * Passes the elements of a specified sorted index whose keys are in the given
+	 * range to the given consumer, ordered by key, without copying them.
+	 * <p>
+	 * The consumer is called while holding the read-lock, so keep it short and
+	 * don't modify this DataTable from within.
+	 *
+	 * @param <K>      the type of the key used by the given sorted index
+	 * @param name     the name of the sorted index
+	 * @param from     the lower bound (inclusive) or null for no lower bound
+	 * @param to       the upper bound (exclusive) or null for no upper bound
+	 * @param consumer the consumer to pass the elements to
+	 */
+	public <K> void sortedForEach(final String name, final K from, final K to, final Consumer<? super T> consumer) {
+		lock.readLock().lock();
+		try {
+			built(sortedIndexes.get(name)).forEach(from, to, consumer);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the first (lowest keys) elements of a specified sorted index.
+	 *
+	 * @param name  the name of the sorted index
+	 * @param count the maximum number of elements to retrieve
+	 * @return the list of elements in ascending order
+	 */
+	public List<T> sortedFirst(final String name, final int count) {
+		lock.readLock().lock();
+		try {
+			return built(sortedIndexes.get(name)).first(count);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the last (highest keys) elements of a specified sorted index. Use this
+	 * to get the 'top N' elements.
+	 *
+	 * @param name  the name of the sorted index
+	 * @param count the maximum number of elements to retrieve
+	 * @return the list of elements in descending order
+	 */
+	public List<T> sortedLast(final String name, final int count) {
+		lock.readLock().lock();
+		try {
+			return built(sortedIndexes.get(name)).last(count);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public <K> Collection<T> multiRemove(final String name, final K key) {
+		lock.writeLock().lock();
+		try {
+			return built(multiIndexes.get(name)).map.remove(key);
+		} finally {
+			lock.writeLock().unlock();
+		}
 	}
 
 	/**
@@ -164,28 +1051,111 @@ public class DataTable<T> {
 	 * @param elements the elements to insert
 	 */
 	@SuppressWarnings("unchecked")
-	public synchronized void add(final T... elements) {
-		for (T element : elements) {
-			queue.offer(element);
-			for (Entry<String, Function<T, Object>> entry : keySuppliers.entrySet()) {
-				Function<T, Boolean> filter = filters.get(entry.getKey());
-				DataMap<Object, T> map = maps.get(entry.getKey());
-				if (filter == null || filter.apply(element)) {
-					Object key = entry.getValue().apply(element);
-					map.put(key, element);
-				}
+	public void add(final T... elements) {
+		lock.writeLock().lock();
+		try {
+			for (T element : elements) {
+				queue.offer(element);
+				for (DataIndex<T> index : allIndexes)
+					index.put(element);
+				for (DataColumn<T> column : allColumns)
+					column.append(element);
+				changed(TableChange.Type.INSERT, element);
 			}
-			for (Entry<String, Function<T, Object>> entry : multiKeySuppliers.entrySet()) {
-				Function<T, Boolean> filter = multiFilters.get(entry.getKey());
-				MultiValuedMap<Object, T> map = multiMaps.get(entry.getKey());
-				if (filter == null || filter.apply(element)) {
-					Object key = entry.getValue().apply(element);
-					map.put(key, element);
-				}
+			recordPuts(elements.length);
+		} finally {
+			unlockAndPublish();
+		}
+	}
+
+	/**
+	 * Adds a batch of elements to the DataTable.
+	 * <p>
+	 * Does the same as {@link #add(Object...)}, but is tailored to large batches.
+	 * The keys are computed in one pass per index before taking the write-lock and
+	 * the prepared batch is then applied to the queue and all indexes within a
+	 * single critical section.
+	 *
+	 * @param elements the elements to insert
+	 */
+	public void addAll(final Collection<? extends T> elements) {
+		addAll(elements, false);
+	}
+
+	/**
+	 * Adds a batch of elements to the DataTable.
+	 * <p>
+	 * Does the same as {@link #add(Object...)}, but is tailored to large batches.
+	 * The keys are computed in one pass per index before taking the write-lock and
+	 * the prepared batch is then applied to the queue and all indexes within a
+	 * single critical section.
+	 *
+	 * @param elements the elements to insert
+	 * @param parallel if true, the indexes are prepared in parallel using the
+	 *                 common fork-join-pool; so your key-suppliers and filters
+	 *                 have to be thread-safe
+	 */
+	public void addAll(final Collection<? extends T> elements, final boolean parallel) {
+		List<T> batch = new ArrayList<>(elements);
+		List<DataIndex<T>> snapshot;
+		int version;
+		lock.readLock().lock();
+		try {
+			snapshot = new ArrayList<>(allIndexes);
+			version = indexVersion;
+		} finally {
+			lock.readLock().unlock();
+		}
+		List<IntConsumer> prepared = prepare(snapshot, batch, parallel);
+
+		lock.writeLock().lock();
+		try {
+			if (version != indexVersion)
+				prepared = prepare(allIndexes, batch, false);
+			for (T element : batch) {
+				queue.offer(element);
+				for (DataColumn<T> column : allColumns)
+					column.append(element);
+				changed(TableChange.Type.INSERT, element);
 			}
+			// Elements at the start of batches larger than the table are evicted again
+			// right away and therefore aren't indexed at all.
+			int from = Math.max(0, batch.size() - maxEntries);
+			for (IntConsumer action : prepared)
+				action.accept(from);
+			recordPuts(batch.size());
+		} finally {
+			unlockAndPublish();
 		}
 	}
 
+	/**
+	 * Adds all elements of the given stream to the DataTable as a single batch.
+	 *
+	 * @param elements the elements to insert
+	 * @see #addAll(Collection)
+	 */
+	public void addAll(final Stream<? extends T> elements) {
+		addAll(elements.collect(Collectors.toList()), false);
+	}
+
+	private void recordPuts(final int count) {
+		if (stats == null)
+			return;
+		stats.recordPuts(count);
+		stats.recordSize(queue.size());
+	}
+
+	private List<IntConsumer> prepare(final List<DataIndex<T>> indexes, final List<T> batch,
+			final boolean parallel) {
+		if (parallel)
+			return indexes.parallelStream().map(index -> index.prepare(batch)).collect(Collectors.toList());
+		List<IntConsumer> prepared = new ArrayList<>(indexes.size());
+		for (DataIndex<T> index : indexes)
+			prepared.add(index.prepare(batch));
+		return prepared;
+	}
+
 	/**
 	 * Get a set of keys for a given index.
 	 *
@@ -194,8 +1164,13 @@ public class DataTable<T> {
 	 * @return a set of keys
 	 */
 	@SuppressWarnings("unchecked")
-	public synchronized <K> Set<K> keySet(final String name) {
-		return (Set<K>) maps.get(name).keySet();
+	public <K> Set<K> keySet(final String name) {
+		lock.readLock().lock();
+		try {
+			return (Set<K>) built(indexes.get(name)).map.keySet();
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
 	/**
@@ -206,8 +1181,13 @@ public class DataTable<T> {
 	 * @return a set of keys
 	 */
 	@SuppressWarnings("unchecked")
-	public synchronized <K> Set<K> multiKeySet(final String name) {
-		return (Set<K>) multiMaps.get(name).keySet();
+	public <K> Set<K> multiKeySet(final String name) {
+		lock.readLock().lock();
+		try {
+			return (Set<K>) built(multiIndexes.get(name)).map.keySet();
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
 	/**
@@ -218,10 +1198,15 @@ public class DataTable<T> {
 	 * @return a list of keys
 	 */
 	@SuppressWarnings("unchecked")
-	public synchronized <K> List<K> keyList(final String name) {
-		List<K> list = new ArrayList<>();
-		list.addAll((Set<K>) maps.get(name).keySet());
-		return list;
+	public <K> List<K> keyList(final String name) {
+		lock.readLock().lock();
+		try {
+			List<K> list = new ArrayList<>();
+			list.addAll((Set<K>) built(indexes.get(name)).map.keySet());
+			return list;
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
 	/**
@@ -232,67 +1217,193 @@ public class DataTable<T> {
 	 * @return a list of keys
 	 */
 	@SuppressWarnings("unchecked")
-	public synchronized <K> List<K> multiKeyList(final String name) {
-		List<K> list = new ArrayList<>();
-		list.addAll((Set<K>) multiMaps.get(name).keySet());
-		return list;
+	public <K> List<K> multiKeyList(final String name) {
+		lock.readLock().lock();
+		try {
+			List<K> list = new ArrayList<>();
+			list.addAll((Set<K>) built(multiIndexes.get(name)).map.keySet());
+			return list;
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
-	public synchronized Collection<T> values(final String name) {
-		return maps.get(name).values();
+	public Collection<T> values(final String name) {
+		lock.readLock().lock();
+		try {
+			return built(indexes.get(name)).map.values();
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
-	public synchronized Collection<T> multiValues(final String name) {
-		return multiMaps.get(name).values();
+	public Collection<T> multiValues(final String name) {
+		lock.readLock().lock();
+		try {
+			return built(multiIndexes.get(name)).map.values();
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
-	public synchronized boolean containsValue(final String name, final T value) {
-		return maps.get(name).containsValue(value);
+	public boolean containsValue(final String name, final T value) {
+		lock.readLock().lock();
+		try {
+			return built(indexes.get(name)).map.containsValue(value);
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
-	public synchronized boolean multiContainsValue(final String name, final T value) {
-		return multiMaps.get(name).containsValue(value);
+	public boolean multiContainsValue(final String name, final T value) {
+		lock.readLock().lock();
+		try {
+			return built(multiIndexes.get(name)).map.containsValue(value);
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
-	public synchronized <K> boolean containsKey(final String name, final K value) {
-		return maps.get(name).containsKey(value);
+	public <K> boolean containsKey(final String name, final K value) {
+		lock.readLock().lock();
+		try {
+			return built(indexes.get(name)).map.containsKey(value);
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
-	public synchronized <K> boolean multiContainsKey(final String name, final K value) {
-		return multiMaps.get(name).containsKey(value);
+	public <K> boolean multiContainsKey(final String name, final K value) {
+		lock.readLock().lock();
+		try {
+			return built(multiIndexes.get(name)).map.containsKey(value);
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
-	public synchronized void clear() {
-		queue.clear();
-		for (String name : keySuppliers.keySet())
-			maps.get(name).clear();
-		for (String name : multiKeySuppliers.keySet())
-			multiMaps.get(name).clear();
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			queue.clear();
+			for (DataIndex<T> index : allIndexes) {
+				index.clear();
+				index.stale = false;
+			}
+			for (DataColumn<T> column : allColumns)
+				column.clear();
+			changed(TableChange.Type.CLEAR, null);
+		} finally {
+			unlockAndPublish();
+		}
 	}
 
+	/**
+	 * Replaces the contents of this DataTable with the given elements and
+	 * rebuilds all indexes.
+	 *
+	 * @param backingArray the elements to load
+	 * @return this instance to provide a fluent interface
+	 */
+	public DataTable<T> load(final T[] backingArray) {
+		return load(backingArray, false);
+	}
+
+	/**
+	 * Replaces the contents of this DataTable with the given elements and
+	 * rebuilds all indexes.
+	 * <p>
+	 * Every index is rebuilt from scratch into tables that are sized for the
+	 * number of rows. Indexes marked using {@link #deferIndex(String)} are only
+	 * built on their first lookup. The time it took to build each index is
+	 * reported by {@link #buildTime(String)}.
+	 *
+	 * @param backingArray the elements to load
+	 * @param parallel     if true, the indexes are built in parallel using the
+	 *                     common fork-join-pool; so your key-suppliers and
+	 *                     filters have to be thread-safe
+	 * @return this instance to provide a fluent interface
+	 */
 	@SuppressWarnings("unchecked")
-	public synchronized DataTable<T> load(T[] backingArray) {
-		if (backingArray == null)
-			backingArray = (T[]) Array.newInstance(clazz, 0);
+	public DataTable<T> load(T[] backingArray, final boolean parallel) {
+		lock.writeLock().lock();
+		try {
+			if (backingArray == null)
+				backingArray = (T[]) Array.newInstance(clazz, 0);
 
-		queue = new DataQueue<>(maxEntries, backingArray);
-		for (Entry<String, Function<T, Object>> entry : keySuppliers.entrySet()) {
-			DataMap<Object, T> map = new DataMap<>(maxEntries);
-			maps.put(entry.getKey(), map);
-			Function<T, Boolean> filter = filters.get(entry.getKey());
-			for (T s : backingArray)
-				if (filter == null || filter.apply(s))
-					map.put(entry.getValue().apply(s), s);
+			queue = new DataQueue<>(maxEntries, backingArray).onEviction(this::evict);
+			List<T> rows = queue.getListClone();
+			List<DataIndex<T>> eager = new ArrayList<>();
+			for (DataIndex<T> index : allIndexes)
+				if (index.deferred) {
+					index.clear();
+					index.stale = true;
+				} else
+					eager.add(index);
+			if (parallel)
+				eager.parallelStream().forEach(index -> build(index, rows));
+			else
+				for (DataIndex<T> index : eager)
+					build(index, rows);
+			for (DataColumn<T> column : allColumns) {
+				column.clear();
+				for (T s : rows)
+					column.append(s);
+			}
+			changed(TableChange.Type.CLEAR, null);
+			for (T s : rows)
+				changed(TableChange.Type.INSERT, s);
+			return this;
+		} finally {
+			unlockAndPublish();
 		}
-		for (Entry<String, Function<T, Object>> entry : multiKeySuppliers.entrySet()) {
-			MultiValuedMap<Object, T> map = new ArrayListValuedHashMap<>(maxEntries);
-			multiMaps.put(entry.getKey(), map);
-			Function<T, Boolean> filter = multiFilters.get(entry.getKey());
-			for (T s : backingArray)
-				if (filter == null || filter.apply(s))
-					map.put(entry.getValue().apply(s), s);
+	}
+
+	/**
+	 * Saves all the elements of this DataTable to the given file in a compact
+	 * binary format.
+	 * <p>
+	 * Takes a snapshot first, so the table isn't locked while writing. Since the
+	 * file is double-buffered, a write that is torn (crash, full disk, ...) always
+	 * leaves the previous generation intact.
+	 *
+	 * @param file       the file to write to
+	 * @param serializer the serializer writing a single row
+	 * @throws IOException if one occurs
+	 */
+	public void save(final DoubleBufferedFile file, final RowSerializer<T> serializer) throws IOException {
+		List<T> rows = snapshot();
+		file.writeBinary(out -> TableFile.write(out, rows, serializer));
+	}
+
+	/**
+	 * Replaces the contents of this DataTable with the elements saved to the given
+	 * file using {@link #save(DoubleBufferedFile, RowSerializer)} and rebuilds all
+	 * indexes.
+	 * <p>
+	 * Streams the newer file from disk instead of loading or mapping it as a
+	 * whole. If that file is torn or corrupt, the older one is used instead.
+	 *
+	 * @param file       the file to read from
+	 * @param serializer the serializer reading a single row
+	 * @return this instance to provide a fluent interface
+	 * @throws IOException if none of the files can be read
+	 */
+	@SuppressWarnings("unchecked")
+	public DataTable<T> restore(final DoubleBufferedFile file, final RowSerializer<T> serializer)
+			throws IOException {
+		List<T> rows;
+		try {
+			rows = file.readBinary(channel -> TableFile.read(channel, serializer));
+		} catch (IOException e) {
+			try {
+				rows = file.readOtherBinary(channel -> TableFile.read(channel, serializer));
+			} catch (IOException other) {
+				e.addSuppressed(other);
+				throw e;
+			}
 		}
-		return this;
+		return load(rows.toArray((T[]) Array.newInstance(clazz, rows.size())));
 	}
 
 	/**
@@ -301,8 +1412,32 @@ public class DataTable<T> {
 	 *
 	 * @return the list
 	 */
-	public synchronized List<T> toList() {
-		return queue.getListClone();
+	public List<T> toList() {
+		lock.readLock().lock();
+		try {
+			return queue.getListClone();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets a read-only view of all the elements in this DataTable at the time of
+	 * the call.
+	 * <p>
+	 * Other than {@link #toList()} this doesn't copy the elements, so it's cheap
+	 * even for large tables that are polled often. The view isn't affected by
+	 * later changes to this DataTable.
+	 *
+	 * @return the snapshot
+	 */
+	public List<T> snapshot() {
+		lock.readLock().lock();
+		try {
+			return queue.snapshot();
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
 	/**
@@ -312,10 +1447,15 @@ public class DataTable<T> {
 	 * @param name the name of the index to get the elements from
 	 * @return the list
 	 */
-	public synchronized List<T> toList(final String name) {
-		List<T> list = new ArrayList<>();
-		list.addAll(maps.get(name).values());
-		return list;
+	public List<T> toList(final String name) {
+		lock.readLock().lock();
+		try {
+			List<T> list = new ArrayList<>();
+			list.addAll(built(indexes.get(name)).map.values());
+			return list;
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
 	/**
@@ -325,9 +1465,14 @@ public class DataTable<T> {
 	 * @return the array
 	 */
 	@SuppressWarnings("unchecked")
-	public synchronized T[] toArray() {
-		T[] zeroArray = (T[]) Array.newInstance(clazz, 0);
-		return queue.getListClone().toArray(zeroArray);
+	public T[] toArray() {
+		lock.readLock().lock();
+		try {
+			List<T> view = queue.view();
+			return view.toArray((T[]) Array.newInstance(clazz, view.size()));
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
 	/**
@@ -338,8 +1483,13 @@ public class DataTable<T> {
 	 * @return the array
 	 */
 	@SuppressWarnings("unchecked")
-	public synchronized T[] toArray(final String name) {
-		T[] zeroArray = (T[]) Array.newInstance(clazz, 0);
-		return toList(name).toArray(zeroArray);
+	public T[] toArray(final String name) {
+		lock.readLock().lock();
+		try {
+			T[] zeroArray = (T[]) Array.newInstance(clazz, 0);
+			return toList(name).toArray(zeroArray);
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 }
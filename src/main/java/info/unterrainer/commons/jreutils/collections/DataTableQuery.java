@@ -0,0 +1,459 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * A query combining lookups on several indexes of a {@link DataTable}.
+ * <p>
+ * The conditions you add are joined by AND until you call {@link #or()}, which
+ * starts a new set of conditions joined by AND. The query then returns all
+ * elements that satisfy at least one of those sets. An empty set (like the one
+ * started by a trailing {@link #or()}) is ignored, unless the query has no
+ * conditions at all, in which case it returns all elements.<br>
+ * For every set the index-condition with the fewest candidates is used to drive
+ * the lookup. All other conditions are checked per candidate (by looking the
+ * candidate up in their indexes) without materializing intermediate results,
+ * so the result doesn't depend on which index drives the lookup. Elements satisfying more than one set are only returned once.
+ * <p>
+ * Queries are executed while holding the read-lock of the table. An instance
+ * isn't thread-safe, so don't share it between threads.
+ *
+ * <pre>
+ * List&lt;Customer&gt; result = dt.query()
+ * 		.whereMulti("region", "EU")
+ * 		.whereMulti("status", Status.ACTIVE)
+ * 		.filter(c -&gt; c.getRevenue() &gt; 1000)
+ * 		.toList();
+ * </pre>
+ */
+public class DataTableQuery<T> {
+
+	private final DataTable<T> table;
+	private final List<List<Condition<T>>> branches = new ArrayList<>();
+	private List<Condition<T>> current;
+
+	DataTableQuery(final DataTable<T> table) {
+		this.table = table;
+		or();
+	}
+
+	/**
+	 * Adds the condition that the element is referenced by the given key in the
+	 * given index.
+	 */
+	public <K> DataTableQuery<T> where(final String name, final K key) {
+		current.add(new UniqueCondition<>(name, key));
+		return this;
+	}
+
+	/**
+	 * Adds the condition that the element is referenced by the given key in the
+	 * given multi-index.
+	 */
+	public <K> DataTableQuery<T> whereMulti(final String name, final K key) {
+		current.add(new MultiCondition<>(name, key));
+		return this;
+	}
+
+	/**
+	 * Adds the condition that the element is referenced by the given key in the
+	 * given long- or int-index.
+	 */
+	public DataTableQuery<T> whereLong(final String name, final long key) {
+		current.add(new LongCondition<>(name, key));
+		return this;
+	}
+
+	/**
+	 * Adds the condition that the key of the element in the given sorted index
+	 * lies within the given range.
+	 *
+	 * @param from the lower bound (inclusive) or null for no lower bound
+	 * @param to   the upper bound (exclusive) or null for no upper bound
+	 */
+	public <K> DataTableQuery<T> whereRange(final String name, final K from, final K to) {
+		current.add(new RangeCondition<>(name, from, to));
+		return this;
+	}
+
+	/**
+	 * Adds a residual condition that is checked for every candidate found using
+	 * the indexes.
+	 */
+	public DataTableQuery<T> filter(final Predicate<? super T> predicate) {
+		current.add(new PredicateCondition<>(predicate));
+		return this;
+	}
+
+	/**
+	 * Starts a new set of conditions that is joined with the previous ones by OR.
+	 */
+	public DataTableQuery<T> or() {
+		if (current == null || !current.isEmpty()) {
+			current = new ArrayList<>();
+			branches.add(current);
+		}
+		return this;
+	}
+
+	/**
+	 * Passes every element satisfying this query to the given consumer without
+	 * copying them.
+	 * <p>
+	 * The consumer is called while holding the read-lock, so keep it short and
+	 * don't modify the table from within.
+	 *
+	 * @param consumer the consumer to pass the elements to
+	 */
+	public void forEach(final Consumer<? super T> consumer) {
+		table.readLock().lock();
+		try {
+			for (int i = 0; i < branches.size(); i++) {
+				List<Condition<T>> branch = branches.get(i);
+				if (ignored(branch))
+					continue;
+				IndexCondition<T> driver = plan(branch);
+				int b = i;
+				Consumer<T> sink = e -> {
+					if (satisfies(branch, driver, e) && !satisfiedBefore(b, e))
+						consumer.accept(e);
+				};
+				if (driver == null)
+					table.forEachRow(sink);
+				else
+					driver.forEachCandidate(sink);
+			}
+		} finally {
+			table.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the elements satisfying this query as a detached offline-copy.
+	 *
+	 * @return the list
+	 */
+	public List<T> toList() {
+		List<T> result = new ArrayList<>();
+		forEach(result::add);
+		return result;
+	}
+
+	/**
+	 * Gets the elements satisfying this query as a stream of a detached
+	 * offline-copy.
+	 * <p>
+	 * The query is executed right away, not when the stream is consumed, since
+	 * the read-lock can't be held for as long as a lazy stream lives.
+	 *
+	 * @return the stream
+	 */
+	public Stream<T> stream() {
+		return toList().stream();
+	}
+
+	public long count() {
+		long[] count = new long[1];
+		forEach(e -> count[0]++);
+		return count[0];
+	}
+
+	/**
+	 * Describes how this query would be executed right now; which index drives
+	 * the lookup of every set of conditions and how many candidates are
+	 * expected.
+	 *
+	 * @return the description
+	 */
+	public String explain() {
+		table.readLock().lock();
+		try {
+			StringBuilder sb = new StringBuilder();
+			for (List<Condition<T>> branch : branches) {
+				if (ignored(branch))
+					continue;
+				IndexCondition<T> driver = plan(branch);
+				sb.append(sb.length() == 0 ? "" : "OR ");
+				if (driver == null)
+					sb.append(String.format("scan all rows (%d candidates)", table.size()));
+				else
+					sb.append(String.format("lookup %s (%d candidates)", driver.describe(),
+							driver.estimate(Integer.MAX_VALUE)));
+				for (Condition<T> condition : branch)
+					if (condition != driver)
+						sb.append(", check ").append(condition.describe());
+				sb.append(System.lineSeparator());
+			}
+			return sb.toString();
+		} finally {
+			table.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Whether the given set of conditions is empty, while there are others. It
+	 * would match every element otherwise.
+	 */
+	private boolean ignored(final List<Condition<T>> branch) {
+		return branch.isEmpty() && branches.size() > 1;
+	}
+
+	private IndexCondition<T> plan(final List<Condition<T>> branch) {
+		IndexCondition<T> driver = null;
+		int best = Integer.MAX_VALUE;
+		for (Condition<T> condition : branch) {
+			condition.resolve(table);
+			if (condition instanceof IndexCondition && !((IndexCondition<T>) condition).costly()) {
+				IndexCondition<T> c = (IndexCondition<T>) condition;
+				int estimate = c.estimate(best);
+				if (driver == null || estimate < best) {
+					driver = c;
+					best = estimate;
+				}
+			}
+		}
+		// Counting the candidates of a range is linear, so only count up to the best
+		// estimate so far.
+		for (Condition<T> condition : branch)
+			if (condition instanceof IndexCondition && ((IndexCondition<T>) condition).costly()) {
+				IndexCondition<T> c = (IndexCondition<T>) condition;
+				int estimate = c.estimate(best);
+				if (driver == null || estimate < best) {
+					driver = c;
+					best = estimate;
+				}
+			}
+		return driver;
+	}
+
+	private boolean satisfies(final List<Condition<T>> branch, final Condition<T> driver, final T element) {
+		for (Condition<T> condition : branch)
+			if (condition != driver && !condition.test(element))
+				return false;
+		return true;
+	}
+
+	private boolean satisfiedBefore(final int branchIndex, final T element) {
+		for (int i = 0; i < branchIndex; i++)
+			if (!ignored(branches.get(i)) && satisfies(branches.get(i), null, element))
+				return true;
+		return false;
+	}
+
+	/**
+	 * A condition that may be checked for a given element.
+	 */
+	private abstract static class Condition<T> {
+
+		void resolve(final DataTable<T> table) {
+		}
+
+		abstract boolean test(T element);
+
+		abstract String describe();
+	}
+
+	/**
+	 * A condition backed by an index, which may drive the lookup as well.
+	 */
+	private abstract static class IndexCondition<T> extends Condition<T> {
+
+		boolean costly() {
+			return false;
+		}
+
+		/**
+		 * Gets the number of candidates this condition yields or the given bound, if
+		 * there are more.
+		 */
+		abstract int estimate(int bound);
+
+		abstract void forEachCandidate(Consumer<T> consumer);
+	}
+
+	private static class UniqueCondition<T> extends IndexCondition<T> {
+		private final String name;
+		private final Object key;
+		private UniqueIndex<T> index;
+
+		UniqueCondition(final String name, final Object key) {
+			this.name = name;
+			this.key = key;
+		}
+
+		@Override
+		void resolve(final DataTable<T> table) {
+			index = table.uniqueIndex(name);
+		}
+
+		@Override
+		int estimate(final int bound) {
+			return index.get(key) == null ? 0 : 1;
+		}
+
+		@Override
+		void forEachCandidate(final Consumer<T> consumer) {
+			T element = index.get(key);
+			if (element != null)
+				consumer.accept(element);
+		}
+
+		@Override
+		boolean test(final T element) {
+			return index.get(key) == element;
+		}
+
+		@Override
+		String describe() {
+			return String.format("index [%s] = %s", name, key);
+		}
+	}
+
+	private static class MultiCondition<T> extends IndexCondition<T> {
+		private final String name;
+		private final Object key;
+		private MultiIndex<T> index;
+
+		MultiCondition(final String name, final Object key) {
+			this.name = name;
+			this.key = key;
+		}
+
+		@Override
+		void resolve(final DataTable<T> table) {
+			index = table.multiIndex(name);
+		}
+
+		@Override
+		int estimate(final int bound) {
+			return index.get(key).size();
+		}
+
+		@Override
+		void forEachCandidate(final Consumer<T> consumer) {
+			Collection<T> elements = index.get(key);
+			for (T element : elements)
+				consumer.accept(element);
+		}
+
+		@Override
+		boolean test(final T element) {
+			return index.matches(element, key);
+		}
+
+		@Override
+		String describe() {
+			return String.format("multi-index [%s] = %s", name, key);
+		}
+	}
+
+	private static class LongCondition<T> extends IndexCondition<T> {
+		private final String name;
+		private final long key;
+		private LongHashIndex<T> index;
+
+		LongCondition(final String name, final long key) {
+			this.name = name;
+			this.key = key;
+		}
+
+		@Override
+		void resolve(final DataTable<T> table) {
+			index = table.longIndex(name);
+		}
+
+		@Override
+		int estimate(final int bound) {
+			return index.containsKey(key) ? 1 : 0;
+		}
+
+		@Override
+		void forEachCandidate(final Consumer<T> consumer) {
+			T element = index.get(key);
+			if (element != null)
+				consumer.accept(element);
+		}
+
+		@Override
+		boolean test(final T element) {
+			return index.get(key) == element;
+		}
+
+		@Override
+		String describe() {
+			return String.format("long-index [%s] = %d", name, key);
+		}
+	}
+
+	private static class RangeCondition<T> extends IndexCondition<T> {
+		private final String name;
+		private final Object from;
+		private final Object to;
+		private SortedIndex<T> index;
+
+		RangeCondition(final String name, final Object from, final Object to) {
+			this.name = name;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		void resolve(final DataTable<T> table) {
+			index = table.sortedIndex(name);
+		}
+
+		@Override
+		boolean costly() {
+			return true;
+		}
+
+		@Override
+		int estimate(final int bound) {
+			int count = 0;
+			for (List<T> list : index.range(from, to).values()) {
+				count += list.size();
+				if (count >= bound)
+					return bound;
+			}
+			return count;
+		}
+
+		@Override
+		void forEachCandidate(final Consumer<T> consumer) {
+			index.forEach(from, to, consumer);
+		}
+
+		@Override
+		boolean test(final T element) {
+			return index.matches(element, from, to);
+		}
+
+		@Override
+		String describe() {
+			return String.format("sorted index [%s] in [%s, %s)", name, from, to);
+		}
+	}
+
+	private static class PredicateCondition<T> extends Condition<T> {
+		private final Predicate<? super T> predicate;
+
+		PredicateCondition(final Predicate<? super T> predicate) {
+			this.predicate = predicate;
+		}
+
+		@Override
+		boolean test(final T element) {
+			return predicate.test(element);
+		}
+
+		@Override
+		String describe() {
+			return "filter";
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.DoubleSummaryStatistics;
+import java.util.function.DoublePredicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A column of primitive {@code double} values.
+ * <p>
+ * Aggregates run as plain loops over the backing array, which the JIT is able
+ * to unroll and vectorize, instead of dereferencing every row.
+ */
+class DoubleColumn<T> extends DataColumn<T> {
+
+	private final ToDoubleFunction<T> extractor;
+	private final double[] values;
+
+	DoubleColumn(final String name, final ToDoubleFunction<T> extractor, final int capacity) {
+		super(name, capacity);
+		this.extractor = extractor;
+		values = new double[capacity];
+	}
+
+	@Override
+	void set(final int slot, final T element) {
+		values[slot] = extractor.applyAsDouble(element);
+	}
+
+	DoubleSummaryStatistics summarize(final DoublePredicate filter, final boolean parallel) {
+		double[] result = aggregate(parallel, (from, to) -> aggregate(values, from, to, filter),
+				DoubleColumn::combine);
+		long count = (long) result[0];
+		if (count == 0L)
+			return new DoubleSummaryStatistics();
+		return new DoubleSummaryStatistics(count, result[1], result[2], result[3]);
+	}
+
+	private static double[] combine(final double[] a, final double[] b) {
+		return new double[] { a[0] + b[0], Math.min(a[1], b[1]), Math.max(a[2], b[2]), a[3] + b[3] };
+	}
+
+	/**
+	 * Aggregates the given range.
+	 *
+	 * @return count, min, max and sum
+	 */
+	private static double[] aggregate(final double[] values, final int from, final int to,
+			final DoublePredicate filter) {
+		long count = 0L;
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		double sum = 0.0;
+		if (filter == null) {
+			for (int i = from; i < to; i++) {
+				double v = values[i];
+				sum += v;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			count = Math.max(0, to - from);
+		} else
+			for (int i = from; i < to; i++) {
+				double v = values[i];
+				if (filter.test(v)) {
+					count++;
+					sum += v;
+					min = Math.min(min, v);
+					max = Math.max(max, v);
+				}
+			}
+		return new double[] { count, min, max, sum };
+	}
+
+	long[] histogram(final double min, final double max, final int buckets, final DoublePredicate filter) {
+		if (buckets <= 0 || !(max > min))
+			throw new IllegalArgumentException(
+					String.format("Invalid histogram [%s, %s) with [%d] buckets.", min, max, buckets));
+		long[] histogram = new long[buckets];
+		double scale = buckets / (max - min);
+		forEachRange((from, to) -> fill(histogram, from, to, min, max, scale, filter));
+		return histogram;
+	}
+
+	private void fill(final long[] histogram, final int from, final int to, final double min, final double max,
+			final double scale, final DoublePredicate filter) {
+		int last = histogram.length - 1;
+		for (int i = from; i < to; i++) {
+			double v = values[i];
+			if (!(v >= min && v < max) || filter != null && !filter.test(v))
+				continue;
+			histogram[Math.min(last, (int) ((v - min) * scale))]++;
+		}
+	}
+}
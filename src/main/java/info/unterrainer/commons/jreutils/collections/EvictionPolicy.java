@@ -0,0 +1,51 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongBiFunction;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Describes when a {@link SizeLimitedHashMap} (or the {@link DataMap} using it)
+ * drops entries.
+ * <p>
+ * All limits are optional and may be combined:
+ * <ul>
+ * <li>{@code maxSize} - the maximum number of entries</li>
+ * <li>{@code accessOrder} - if true, the least recently accessed entry is
+ * evicted first (LRU), otherwise the least recently inserted one</li>
+ * <li>{@code weigher} and {@code maxWeight} - the maximum sum of the weights of
+ * all entries</li>
+ * <li>{@code expireAfterWrite} - entries expire after this time since they
+ * were written</li>
+ * <li>{@code expireAfterAccess} - entries expire after this time since they
+ * were last read or written</li>
+ * <li>{@code refreshAfterWrite} - entries are reloaded in the background when
+ * read through a loader of the {@link DataMap} after this time since they were
+ * written; should be shorter than {@code expireAfterWrite}</li>
+ * <li>{@code ticker} - the clock in nanoseconds used for expiry; defaults to
+ * {@link System#nanoTime()}</li>
+ * <li>{@code tinyLfu} - if true, a {@link DataMap} uses a
+ * {@link TinyLfuHashMap}, which keeps frequently used entries instead of the
+ * most recent ones; only supports {@code maxSize}</li>
+ * </ul>
+ */
+@Getter
+@Builder(toBuilder = true)
+public class EvictionPolicy<K, V> {
+
+	@Builder.Default
+	private final int maxSize = Integer.MAX_VALUE;
+	private final boolean accessOrder;
+	private final ToLongBiFunction<K, V> weigher;
+	@Builder.Default
+	private final long maxWeight = Long.MAX_VALUE;
+	private final Duration expireAfterWrite;
+	private final Duration expireAfterAccess;
+	private final Duration refreshAfterWrite;
+	@Builder.Default
+	private final LongSupplier ticker = System::nanoTime;
+	private final boolean tinyLfu;
+}
@@ -0,0 +1,86 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.Objects;
+
+/**
+ * A count-min sketch estimating how often an element has been seen recently.
+ * <p>
+ * Uses four 4-bit counters per element spread over a {@code long[]}, so it
+ * needs 8 bytes per element of the cache it serves. Once the number of
+ * increments reaches ten times that size, all counters are halved, so old
+ * popularity fades over time (aging).
+ * <p>
+ * Null is a valid element and is hashed as 0.
+ */
+class FrequencySketch {
+
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+			0xcbf29ce484222325L };
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	private final long[] table;
+	private final int mask;
+	private final int sampleSize;
+	private int additions;
+
+	FrequencySketch(final int maximumSize) {
+		int maximum = Math.max(1, maximumSize);
+		int size = Integer.highestOneBit(Math.min(maximum, 1 << 30) - 1) << 1;
+		table = new long[Math.max(1, size)];
+		mask = table.length - 1;
+		sampleSize = (int) Math.min(10L * maximum, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Gets the estimated number of occurrences of an element, at most 15.
+	 */
+	int frequency(final Object element) {
+		int hash = spread(Objects.hashCode(element));
+		int start = (hash & 3) << 2;
+		int frequency = 15;
+		for (int i = 0; i < 4; i++) {
+			int count = (int) ((table[indexOf(hash, i)] >>> ((start + i) << 2)) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Increments the counters of an element, if they are not saturated yet.
+	 */
+	void increment(final Object element) {
+		int hash = spread(Objects.hashCode(element));
+		int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++)
+			added |= incrementAt(indexOf(hash, i), start + i);
+		if (added && ++additions == sampleSize)
+			reset();
+	}
+
+	private boolean incrementAt(final int index, final int counter) {
+		int offset = counter << 2;
+		long m = 0xfL << offset;
+		if ((table[index] & m) == m)
+			return false;
+		table[index] += 1L << offset;
+		return true;
+	}
+
+	private void reset() {
+		for (int i = 0; i < table.length; i++)
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		additions >>>= 1;
+	}
+
+	private int indexOf(final int hash, final int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+		return (int) h & mask;
+	}
+
+	private static int spread(final int hashCode) {
+		int h = hashCode * 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,90 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Exposes a {@link StatsRecorder} as an MXBean, so it may be scraped using
+ * JMX.
+ */
+public class JmxStats implements StatsMXBean {
+
+	private final StatsRecorder recorder;
+
+	public JmxStats(final StatsRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+	/**
+	 * Registers the given recorder with the platform MBean-server as
+	 * {@code info.unterrainer.commons.jreutils:type=Stats,name=<name>}.
+	 *
+	 * @param name     the name of the collection
+	 * @param recorder the recorder of the collection
+	 * @return the name of the registered MBean
+	 * @throws JMException if the name is invalid or already registered
+	 */
+	public static ObjectName register(final String name, final StatsRecorder recorder) throws JMException {
+		ObjectName objectName = new ObjectName(
+				String.format("info.unterrainer.commons.jreutils:type=Stats,name=%s", ObjectName.quote(name)));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new JmxStats(recorder), objectName);
+		return objectName;
+	}
+
+	/**
+	 * Removes a registered recorder from the platform MBean-server.
+	 *
+	 * @param objectName the name returned when registering it
+	 * @throws JMException if it isn't registered
+	 */
+	public static void unregister(final ObjectName objectName) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+	}
+
+	@Override
+	public long getHits() {
+		return recorder.snapshot().hits();
+	}
+
+	@Override
+	public long getMisses() {
+		return recorder.snapshot().misses();
+	}
+
+	@Override
+	public double getHitRate() {
+		return recorder.snapshot().hitRate();
+	}
+
+	@Override
+	public long getPuts() {
+		return recorder.snapshot().puts();
+	}
+
+	@Override
+	public long getEvictions() {
+		return recorder.snapshot().evictions();
+	}
+
+	@Override
+	public long getLoads() {
+		return recorder.snapshot().loads();
+	}
+
+	@Override
+	public long getLoadFailures() {
+		return recorder.snapshot().loadFailures();
+	}
+
+	@Override
+	public double getAverageLoadTimeNanos() {
+		return recorder.snapshot().averageLoadTimeNanos();
+	}
+
+	@Override
+	public long getHighWaterMark() {
+		return recorder.snapshot().highWaterMark();
+	}
+}
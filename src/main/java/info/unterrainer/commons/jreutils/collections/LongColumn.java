@@ -0,0 +1,92 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.LongSummaryStatistics;
+import java.util.function.LongPredicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * A column of primitive {@code long} values.
+ * <p>
+ * Aggregates run as plain loops over the backing array, which the JIT is able
+ * to unroll and vectorize, instead of dereferencing every row.
+ */
+class LongColumn<T> extends DataColumn<T> {
+
+	private final ToLongFunction<T> extractor;
+	private final long[] values;
+
+	LongColumn(final String name, final ToLongFunction<T> extractor, final int capacity) {
+		super(name, capacity);
+		this.extractor = extractor;
+		values = new long[capacity];
+	}
+
+	@Override
+	void set(final int slot, final T element) {
+		values[slot] = extractor.applyAsLong(element);
+	}
+
+	LongSummaryStatistics summarize(final LongPredicate filter, final boolean parallel) {
+		long[] result = aggregate(parallel, (from, to) -> aggregate(values, from, to, filter), LongColumn::combine);
+		long count = result[0];
+		if (count == 0L)
+			return new LongSummaryStatistics();
+		return new LongSummaryStatistics(count, result[1], result[2], result[3]);
+	}
+
+	private static long[] combine(final long[] a, final long[] b) {
+		return new long[] { a[0] + b[0], Math.min(a[1], b[1]), Math.max(a[2], b[2]), a[3] + b[3] };
+	}
+
+	/**
+	 * Aggregates the given range.
+	 *
+	 * @return count, min, max and sum
+	 */
+	private static long[] aggregate(final long[] values, final int from, final int to, final LongPredicate filter) {
+		long count = 0L;
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		long sum = 0L;
+		if (filter == null) {
+			for (int i = from; i < to; i++) {
+				long v = values[i];
+				sum += v;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			count = Math.max(0, to - from);
+		} else
+			for (int i = from; i < to; i++) {
+				long v = values[i];
+				if (filter.test(v)) {
+					count++;
+					sum += v;
+					min = Math.min(min, v);
+					max = Math.max(max, v);
+				}
+			}
+		return new long[] { count, min, max, sum };
+	}
+
+	long[] histogram(final long min, final long max, final int buckets, final LongPredicate filter) {
+		if (buckets <= 0 || max <= min)
+			throw new IllegalArgumentException(
+					String.format("Invalid histogram [%d, %d) with [%d] buckets.", min, max, buckets));
+		long[] histogram = new long[buckets];
+		double scale = (double) buckets / ((double) max - min);
+		forEachRange((from, to) -> fill(histogram, from, to, min, max, scale, filter));
+		return histogram;
+	}
+
+	private void fill(final long[] histogram, final int from, final int to, final long min, final long max,
+			final double scale, final LongPredicate filter) {
+		int last = histogram.length - 1;
+		for (int i = from; i < to; i++) {
+			long v = values[i];
+			if (v < min || v >= max || filter != null && !filter.test(v))
+				continue;
+			histogram[Math.min(last, (int) (((double) v - min) * scale))]++;
+		}
+	}
+}
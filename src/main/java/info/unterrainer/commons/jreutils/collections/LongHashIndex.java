@@ -0,0 +1,126 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * An index referencing a single element per primitive {@code long} key.
+ * <p>
+ * Backed by a {@link LongHashTable} (keys and elements in parallel arrays), so
+ * keys aren't boxed and there is no node per entry. Lookups don't allocate at
+ * all. Deletions shift the following entries back instead of leaving
+ * tombstones.
+ */
+class LongHashIndex<T> extends DataIndex<T> {
+
+	private final ToLongFunction<T> keySupplier;
+	private final Elements table = new Elements();
+
+	LongHashIndex(final String name, final ToLongFunction<T> keySupplier, final Function<T, Boolean> filter) {
+		super(name, filter);
+		this.keySupplier = keySupplier;
+	}
+
+	/**
+	 * The table of this index; an empty slot holds null.
+	 */
+	private static class Elements extends LongHashTable<Object[]> {
+
+		@Override
+		protected Object[] newValues(final int capacity) {
+			return new Object[capacity];
+		}
+
+		@Override
+		protected boolean occupied(final Object[] values, final int slot) {
+			return values[slot] != null;
+		}
+
+		@Override
+		protected void move(final Object[] from, final int fromSlot, final int toSlot) {
+			values[toSlot] = from[fromSlot];
+		}
+
+		@Override
+		protected void vacate(final int slot) {
+			values[slot] = null;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	T get(final long key) {
+		int slot = table.find(key);
+		return slot == -1 ? null : (T) table.values[slot];
+	}
+
+	boolean containsKey(final long key) {
+		return table.find(key) != -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	T remove(final long key) {
+		int slot = table.find(key);
+		if (slot == -1)
+			return null;
+		T value = (T) table.values[slot];
+		table.delete(slot);
+		return value;
+	}
+
+	int size() {
+		return table.size();
+	}
+
+	private void insert(final long key, final T element) {
+		// Claim first, since claiming may replace the value-array.
+		int slot = table.claim(key);
+		table.values[slot] = element;
+	}
+
+	@Override
+	void put(final T element) {
+		if (accepts(element))
+			insert(keySupplier.applyAsLong(element), element);
+	}
+
+	@Override
+	boolean remove(final T element) {
+		int slot = table.find(keySupplier.applyAsLong(element));
+		if (slot == -1 || table.values[slot] != element)
+			return false;
+		table.delete(slot);
+		return true;
+	}
+
+	@Override
+	void clear() {
+		table.clear();
+	}
+
+	@Override
+	void rebuild(final List<T> rows) {
+		// Keep the load-factor below the 0.75 that makes the table grow.
+		table.clear(Math.max(LongHashTable.MIN_CAPACITY, Integer.highestOneBit(capacityFor(rows.size()) - 1) << 1));
+		for (T row : rows)
+			put(row);
+	}
+
+	@Override
+	IntConsumer prepare(final List<T> elements) {
+		long[] batchKeys = new long[elements.size()];
+		boolean[] accepted = new boolean[batchKeys.length];
+		for (int i = 0; i < batchKeys.length; i++) {
+			T element = elements.get(i);
+			accepted[i] = accepts(element);
+			if (accepted[i])
+				batchKeys[i] = keySupplier.applyAsLong(element);
+		}
+		return from -> {
+			for (int i = from; i < batchKeys.length; i++)
+				if (accepted[i])
+					insert(batchKeys[i], elements.get(i));
+		};
+	}
+}
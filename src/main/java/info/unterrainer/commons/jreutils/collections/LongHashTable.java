@@ -0,0 +1,145 @@
+package info.unterrainer.commons.jreutils.collections;
+
+/**
+ * The base of hash-tables with primitive {@code long} keys.
+ * <p>
+ * An open-addressing hash-table using linear probing on two parallel arrays,
+ * the keys and the values, so keys aren't boxed and there is no node per entry.
+ * Keys are spread using Fibonacci-hashing. Deletions shift the following
+ * entries back instead of leaving tombstones.<br>
+ * Subclasses choose the type of the value-array and how an empty slot is
+ * marked in it.
+ *
+ * @param <A> the type of the value-array
+ */
+abstract class LongHashTable<A> {
+
+	static final int MIN_CAPACITY = 16;
+
+	private static final long PHI = 0x9E3779B97F4A7C15L;
+
+	protected long[] keys;
+	protected A values;
+	private int mask;
+	private int shift;
+	private int size;
+
+	LongHashTable() {
+		allocate(MIN_CAPACITY);
+	}
+
+	/**
+	 * Creates a value-array of the given capacity with all slots empty.
+	 */
+	protected abstract A newValues(int capacity);
+
+	/**
+	 * Tells if the given slot of the given value-array holds a value.
+	 */
+	protected abstract boolean occupied(A values, int slot);
+
+	/**
+	 * Copies the value in the given slot of the given value-array to the given
+	 * slot of the current one.
+	 */
+	protected abstract void move(A from, int fromSlot, int toSlot);
+
+	/**
+	 * Marks the given slot of the current value-array as empty.
+	 */
+	protected abstract void vacate(int slot);
+
+	private void allocate(final int capacity) {
+		keys = new long[capacity];
+		values = newValues(capacity);
+		mask = capacity - 1;
+		shift = Long.numberOfLeadingZeros(capacity - 1);
+	}
+
+	private int slotOf(final long key) {
+		return (int) ((key * PHI) >>> shift) & mask;
+	}
+
+	/**
+	 * Gets the slot holding the given key or -1.
+	 */
+	protected int find(final long key) {
+		int slot = slotOf(key);
+		while (occupied(values, slot)) {
+			if (keys[slot] == key)
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the slot holding the given key or, if it's missing, the empty slot to
+	 * store its value in, growing the table if necessary. The caller has to fill
+	 * an empty slot right away.
+	 */
+	protected int claim(final long key) {
+		if (size + 1 > (keys.length >> 1) + (keys.length >> 2))
+			grow();
+		int slot = slotOf(key);
+		while (occupied(values, slot)) {
+			if (keys[slot] == key)
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		size++;
+		return slot;
+	}
+
+	/**
+	 * Removes the entry in the given slot.
+	 */
+	protected void delete(int slot) {
+		size--;
+		// Shift back following entries of the same probe-sequence, so lookups don't
+		// stop at the gap.
+		int next = (slot + 1) & mask;
+		while (occupied(values, next)) {
+			int home = slotOf(keys[next]);
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				keys[slot] = keys[next];
+				move(values, next, slot);
+				slot = next;
+			}
+			next = (next + 1) & mask;
+		}
+		vacate(slot);
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		A oldValues = values;
+		allocate(oldKeys.length << 1);
+		for (int i = 0; i < oldKeys.length; i++)
+			if (occupied(oldValues, i)) {
+				int slot = slotOf(oldKeys[i]);
+				while (occupied(values, slot))
+					slot = (slot + 1) & mask;
+				keys[slot] = oldKeys[i];
+				move(oldValues, i, slot);
+			}
+	}
+
+	int size() {
+		return size;
+	}
+
+	void clear() {
+		clear(MIN_CAPACITY);
+	}
+
+	/**
+	 * Removes all entries and allocates the given capacity, which has to be a
+	 * power of two.
+	 */
+	void clear(final int capacity) {
+		allocate(capacity);
+		size = 0;
+	}
+}
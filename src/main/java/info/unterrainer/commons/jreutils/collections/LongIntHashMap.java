@@ -0,0 +1,85 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.Arrays;
+
+/**
+ * A hash-map from primitive {@code long} keys to non-negative {@code int}
+ * values.
+ * <p>
+ * A {@link LongHashTable}, just like the one backing {@link LongHashIndex}, so
+ * there is neither boxing nor a node per entry. An empty slot is marked by the
+ * value {@link #MISSING}.
+ */
+class LongIntHashMap extends LongHashTable<int[]> {
+
+	static final int MISSING = -1;
+
+	@Override
+	protected int[] newValues(final int capacity) {
+		int[] values = new int[capacity];
+		Arrays.fill(values, MISSING);
+		return values;
+	}
+
+	@Override
+	protected boolean occupied(final int[] values, final int slot) {
+		return values[slot] != MISSING;
+	}
+
+	@Override
+	protected void move(final int[] from, final int fromSlot, final int toSlot) {
+		values[toSlot] = from[fromSlot];
+	}
+
+	@Override
+	protected void vacate(final int slot) {
+		values[slot] = MISSING;
+	}
+
+	/**
+	 * Gets the value of the given key or {@link #MISSING}.
+	 */
+	int get(final long key) {
+		int slot = find(key);
+		return slot == -1 ? MISSING : values[slot];
+	}
+
+	/**
+	 * Puts the given entry.
+	 *
+	 * @return the value previously stored for the key or {@link #MISSING}
+	 */
+	int put(final long key, final int value) {
+		int slot = claim(key);
+		int old = values[slot];
+		values[slot] = value;
+		return old;
+	}
+
+	/**
+	 * Removes the entry of the given key.
+	 *
+	 * @return the removed value or {@link #MISSING}
+	 */
+	int remove(final long key) {
+		int slot = find(key);
+		if (slot == -1)
+			return MISSING;
+		int value = values[slot];
+		delete(slot);
+		return value;
+	}
+
+	/**
+	 * Removes the entry of the given key, if it still has the given value.
+	 *
+	 * @return true, if the entry was removed
+	 */
+	boolean remove(final long key, final int value) {
+		int slot = find(key);
+		if (slot == -1 || values[slot] != value)
+			return false;
+		delete(slot);
+		return true;
+	}
+}
@@ -0,0 +1,83 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+import org.apache.commons.collections4.MultiValuedMap;
+import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
+
+/**
+ * An index referencing a list of elements per key.
+ */
+class MultiIndex<T> extends DataIndex<T> {
+
+	private static final int INITIAL_LIST_CAPACITY = 3;
+
+	private final Function<T, Object> keySupplier;
+	MultiValuedMap<Object, T> map;
+
+	MultiIndex(final String name, final Function<T, Object> keySupplier, final Function<T, Boolean> filter,
+			final int maxEntries) {
+		super(name, filter);
+		this.keySupplier = keySupplier;
+		map = new ArrayListValuedHashMap<>(maxEntries, INITIAL_LIST_CAPACITY);
+	}
+
+	Collection<T> get(final Object key) {
+		return map.get(key);
+	}
+
+	/**
+	 * Checks if the given element is referenced by the given key in this index,
+	 * comparing by identity like the other indexes do. Elements whose entry was
+	 * removed (using {@code multiRemove}, for example) don't match, even if their
+	 * key still does.
+	 */
+	boolean matches(final T element, final Object key) {
+		if (!map.containsKey(key))
+			return false;
+		for (T candidate : map.get(key))
+			if (candidate == element)
+				return true;
+		return false;
+	}
+
+	@Override
+	void put(final T element) {
+		if (accepts(element))
+			map.put(keySupplier.apply(element), element);
+	}
+
+	@Override
+	boolean remove(final T element) {
+		return map.removeMapping(keySupplier.apply(element), element);
+	}
+
+	@Override
+	void clear() {
+		map.clear();
+	}
+
+	@Override
+	void rebuild(final List<T> rows) {
+		map = new ArrayListValuedHashMap<>(capacityFor(rows.size()), INITIAL_LIST_CAPACITY);
+		for (T row : rows)
+			put(row);
+	}
+
+	@Override
+	IntConsumer prepare(final List<T> elements) {
+		Object[] keys = new Object[elements.size()];
+		for (int i = 0; i < keys.length; i++) {
+			T element = elements.get(i);
+			keys[i] = accepts(element) ? keySupplier.apply(element) : SKIPPED;
+		}
+		return from -> {
+			for (int i = from; i < keys.length; i++)
+				if (keys[i] != SKIPPED)
+					map.put(keys[i], elements.get(i));
+		};
+	}
+}
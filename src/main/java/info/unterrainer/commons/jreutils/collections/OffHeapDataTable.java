@@ -0,0 +1,356 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * A size-limited FIFO-table like {@link DataTable}, that stores its rows
+ * off-heap.
+ * <p>
+ * Every row is encoded by a {@link RowCodec} into a fixed number of bytes in a
+ * ring of direct {@link ByteBuffer}s (chunks of up to 1 GB, allocated when
+ * first used). Indexes map primitive {@code long} keys to the slots of the
+ * rows using primitive arrays only. So there are no objects per row on the
+ * heap and the garbage-collector has almost nothing to trace, even for tens of
+ * millions of rows.<br>
+ * Rows are decoded on access only, so every lookup returns a new instance. Keep
+ * that in mind when comparing rows by identity.
+ * <p>
+ * Access is guarded by a read-write-lock, just like in {@link DataTable}. The
+ * direct memory is released when the table is garbage-collected.
+ */
+public class OffHeapDataTable<T> {
+
+	private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+	private final RowCodec<T> codec;
+	private final int rowSize;
+	private final int maxEntries;
+	private final int rowsPerChunk;
+	private final ByteBuffer[] chunks;
+
+	private final HashMap<String, OffHeapIndex<T>> indexes = new HashMap<>();
+	private final HashMap<String, OffHeapIndex<T>> multiIndexes = new HashMap<>();
+	private final List<OffHeapIndex<T>> allIndexes = new ArrayList<>();
+
+	private int head;
+	private int size;
+	private long evictions;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	public OffHeapDataTable(final RowCodec<T> codec, final int maxEntries) {
+		if (maxEntries <= 0)
+			throw new IllegalArgumentException("The size must be greater than 0.");
+		rowSize = codec.rowSize();
+		if (rowSize <= 0 || rowSize > MAX_CHUNK_BYTES)
+			throw new IllegalArgumentException(String.format("The row-size [%d] is invalid.", rowSize));
+		this.codec = codec;
+		this.maxEntries = maxEntries;
+		rowsPerChunk = Math.min(maxEntries, MAX_CHUNK_BYTES / rowSize);
+		chunks = new ByteBuffer[(maxEntries + rowsPerChunk - 1) / rowsPerChunk];
+	}
+
+	public OffHeapDataTable<T> addIndex(final String name, final ToLongFunction<T> keySupplier) {
+		return addIndex(name, keySupplier, null);
+	}
+
+	public OffHeapDataTable<T> addIndex(final String name, final ToLongFunction<T> keySupplier,
+			final Function<T, Boolean> filter) {
+		return register(indexes, new OffHeapIndex<>(name, keySupplier, filter, false, maxEntries));
+	}
+
+	public OffHeapDataTable<T> addMultiIndex(final String name, final ToLongFunction<T> keySupplier) {
+		return addMultiIndex(name, keySupplier, null);
+	}
+
+	public OffHeapDataTable<T> addMultiIndex(final String name, final ToLongFunction<T> keySupplier,
+			final Function<T, Boolean> filter) {
+		return register(multiIndexes, new OffHeapIndex<>(name, keySupplier, filter, true, maxEntries));
+	}
+
+	private OffHeapDataTable<T> register(final HashMap<String, OffHeapIndex<T>> map, final OffHeapIndex<T> index) {
+		lock.writeLock().lock();
+		try {
+			OffHeapIndex<T> replaced = map.put(index.name, index);
+			if (replaced != null)
+				allIndexes.remove(replaced);
+			allIndexes.add(index);
+			for (int i = 0; i < size; i++) {
+				int slot = slotAt(i);
+				index.put(slot, decode(slot));
+			}
+			return this;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private int slotAt(final int position) {
+		int slot = head + position;
+		return slot >= maxEntries ? slot - maxEntries : slot;
+	}
+
+	private ByteBuffer chunkOf(final int slot) {
+		int chunk = slot / rowsPerChunk;
+		ByteBuffer buffer = chunks[chunk];
+		if (buffer == null) {
+			int rows = Math.min(rowsPerChunk, maxEntries - chunk * rowsPerChunk);
+			buffer = ByteBuffer.allocateDirect(rows * rowSize);
+			chunks[chunk] = buffer;
+		}
+		return buffer;
+	}
+
+	private int offsetOf(final int slot) {
+		return (slot % rowsPerChunk) * rowSize;
+	}
+
+	private T decode(final int slot) {
+		return codec.decode(chunkOf(slot), offsetOf(slot));
+	}
+
+	private OffHeapIndex<T> existing(final OffHeapIndex<T> index, final String name) {
+		if (index == null)
+			throw new IllegalArgumentException(String.format("There is no such index [%s].", name));
+		return index;
+	}
+
+	/**
+	 * Adds one or more rows to this table, evicting the oldest ones if it's full.
+	 *
+	 * @param rows the rows to insert
+	 */
+	@SuppressWarnings("unchecked")
+	public void add(final T... rows) {
+		lock.writeLock().lock();
+		try {
+			for (T row : rows)
+				insert(row);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds all the given rows to this table within a single critical section.
+	 *
+	 * @param rows the rows to insert
+	 */
+	public void addAll(final Collection<? extends T> rows) {
+		lock.writeLock().lock();
+		try {
+			for (T row : rows)
+				insert(row);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void insert(final T row) {
+		if (row == null)
+			throw new NullPointerException("This table does not permit null rows.");
+		if (size == maxEntries) {
+			dropHead(true);
+			evictions++;
+		}
+		int slot = slotAt(size);
+		codec.encode(row, chunkOf(slot), offsetOf(slot));
+		size++;
+		for (OffHeapIndex<T> index : allIndexes)
+			index.put(slot, row);
+	}
+
+	private void dropHead(final boolean evicted) {
+		for (OffHeapIndex<T> index : allIndexes)
+			if (index.remove(head) && evicted)
+				index.evictions++;
+		head = slotAt(1);
+		size--;
+	}
+
+	/**
+	 * Gets the number of rows that have been evicted from this table, because it
+	 * was full.
+	 *
+	 * @return the number of evictions
+	 */
+	public long evictions() {
+		lock.readLock().lock();
+		try {
+			return evictions;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of rows that have been evicted from the given index (of any
+	 * kind), because they were evicted from this table.
+	 *
+	 * @param name the name of the index
+	 * @return the number of evictions
+	 */
+	public long evictions(final String name) {
+		lock.readLock().lock();
+		try {
+			OffHeapIndex<T> index = indexes.get(name);
+			if (index == null)
+				index = multiIndexes.get(name);
+			return existing(index, name).evictions;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of bytes of direct memory this table has allocated so far.
+	 *
+	 * @return the number of bytes
+	 */
+	public long offHeapBytes() {
+		lock.readLock().lock();
+		try {
+			long bytes = 0L;
+			for (ByteBuffer chunk : chunks)
+				if (chunk != null)
+					bytes += chunk.capacity();
+			return bytes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Decodes the oldest row, or returns {@code null} if this table is empty.
+	 *
+	 * @return the oldest row
+	 */
+	public T peek() {
+		lock.readLock().lock();
+		try {
+			return size == 0 ? null : decode(head);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes and decodes the oldest row, or returns {@code null} if this table is
+	 * empty.
+	 *
+	 * @return the oldest row
+	 */
+	public T poll() {
+		lock.writeLock().lock();
+		try {
+			if (size == 0)
+				return null;
+			T row = decode(head);
+			dropHead(false);
+			return row;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Decodes the latest row with the given key in the given index.
+	 *
+	 * @param name the name of the index
+	 * @param key  the key
+	 * @return the row or null, if there is none
+	 */
+	public T get(final String name, final long key) {
+		lock.readLock().lock();
+		try {
+			int slot = existing(indexes.get(name), name).get(key);
+			return slot == LongIntHashMap.MISSING ? null : decode(slot);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public boolean containsKey(final String name, final long key) {
+		lock.readLock().lock();
+		try {
+			return existing(indexes.get(name), name).get(key) != LongIntHashMap.MISSING;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Decodes all rows with the given key in the given multi-index.
+	 *
+	 * @param name the name of the multi-index
+	 * @param key  the key
+	 * @return the rows in insertion order; may be empty
+	 */
+	public List<T> multiGet(final String name, final long key) {
+		lock.readLock().lock();
+		try {
+			List<T> rows = new ArrayList<>();
+			existing(multiIndexes.get(name), name).forEach(key, slot -> rows.add(decode(slot)));
+			Collections.reverse(rows);
+			return rows;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public boolean multiContainsKey(final String name, final long key) {
+		lock.readLock().lock();
+		try {
+			return existing(multiIndexes.get(name), name).get(key) != LongIntHashMap.MISSING;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Decodes all rows in insertion order.
+	 *
+	 * @return the rows
+	 */
+	public List<T> toList() {
+		lock.readLock().lock();
+		try {
+			List<T> rows = new ArrayList<>(size);
+			for (int i = 0; i < size; i++)
+				rows.add(decode(slotAt(i)));
+			return rows;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			head = 0;
+			size = 0;
+			for (OffHeapIndex<T> index : allIndexes)
+				index.clear();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+}
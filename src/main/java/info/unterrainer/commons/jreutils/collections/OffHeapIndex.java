@@ -0,0 +1,126 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * An index of an {@link OffHeapDataTable} mapping primitive {@code long} keys
+ * to the slots of the rows.
+ * <p>
+ * A unique index references the latest row per key. A multi-index references
+ * the latest row per key and chains all rows with the same key using two
+ * {@code int[]}s (the next older and the next newer slot), so unlinking an
+ * evicted row takes constant time.<br>
+ * Since the key of every indexed slot is kept in a {@code long[]}, rows don't
+ * have to be decoded to remove them.
+ */
+class OffHeapIndex<T> {
+
+	private static final int NONE = LongIntHashMap.MISSING;
+
+	final String name;
+	private final ToLongFunction<T> keySupplier;
+	private final Function<T, Boolean> filter;
+	private final boolean multi;
+
+	private final LongIntHashMap latest = new LongIntHashMap();
+	private final long[] slotKeys;
+	private final boolean[] indexed;
+	private final int[] older;
+	private final int[] newer;
+
+	long evictions;
+
+	OffHeapIndex(final String name, final ToLongFunction<T> keySupplier, final Function<T, Boolean> filter,
+			final boolean multi, final int capacity) {
+		this.name = name;
+		this.keySupplier = keySupplier;
+		this.filter = filter;
+		this.multi = multi;
+		slotKeys = new long[capacity];
+		indexed = new boolean[capacity];
+		older = multi ? new int[capacity] : null;
+		newer = multi ? new int[capacity] : null;
+	}
+
+	void put(final int slot, final T row) {
+		if (filter != null && !filter.apply(row))
+			return;
+		long key = keySupplier.applyAsLong(row);
+		slotKeys[slot] = key;
+		indexed[slot] = true;
+		int previous = latest.put(key, slot);
+		if (!multi) {
+			// The unique index only references the latest row of a key.
+			if (previous != NONE)
+				indexed[previous] = false;
+			return;
+		}
+		older[slot] = previous;
+		newer[slot] = NONE;
+		if (previous != NONE)
+			newer[previous] = slot;
+	}
+
+	/**
+	 * Removes the row in the given slot from this index.
+	 *
+	 * @return true, if it was indexed
+	 */
+	boolean remove(final int slot) {
+		if (!indexed[slot])
+			return false;
+		indexed[slot] = false;
+		long key = slotKeys[slot];
+		if (!multi) {
+			latest.remove(key, slot);
+			return true;
+		}
+		int o = older[slot];
+		int n = newer[slot];
+		if (n == NONE) {
+			if (o == NONE)
+				latest.remove(key);
+			else
+				latest.put(key, o);
+		} else
+			older[n] = o;
+		if (o != NONE)
+			newer[o] = n;
+		return true;
+	}
+
+	/**
+	 * Gets the slot of the latest row with the given key or
+	 * {@link LongIntHashMap#MISSING}.
+	 */
+	int get(final long key) {
+		return latest.get(key);
+	}
+
+	/**
+	 * Passes the slots of all rows with the given key to the consumer, from the
+	 * latest to the oldest.
+	 */
+	void forEach(final long key, final IntConsumer consumer) {
+		int slot = latest.get(key);
+		if (!multi) {
+			if (slot != NONE)
+				consumer.accept(slot);
+			return;
+		}
+		for (; slot != NONE; slot = older[slot])
+			consumer.accept(slot);
+	}
+
+	boolean isMulti() {
+		return multi;
+	}
+
+	void clear() {
+		latest.clear();
+		Arrays.fill(indexed, false);
+	}
+}
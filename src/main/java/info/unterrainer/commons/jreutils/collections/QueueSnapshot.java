@@ -0,0 +1,69 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A read-only, consistent view of the contents of a {@link DataQueue} at the
+ * time it was taken.
+ * <p>
+ * Shares the segments of the queue instead of copying its elements, which is
+ * safe, because the queue never overwrites a slot once it has been written and
+ * doesn't clear the slots of segments a snapshot may reference.
+ */
+class QueueSnapshot<T> extends AbstractList<T> implements RandomAccess {
+
+	private final Object[][] segments;
+	private final int head;
+	private final int size;
+	private final int segmentSize;
+
+	QueueSnapshot(final Object[][] segments, final int head, final int size, final int segmentSize) {
+		this.segments = segments;
+		this.head = head;
+		this.size = size;
+		this.segmentSize = segmentSize;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(final int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException(String.format("Index [%d] is out of bounds [0, %d).", index, size));
+		int position = head + index;
+		return (T) segments[position / segmentSize][position % segmentSize];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Object[] toArray() {
+		return copyTo(new Object[size]);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <A> A[] toArray(final A[] array) {
+		A[] result = array.length >= size ? array : (A[]) Arrays.copyOf(array, size);
+		copyTo(result);
+		if (result.length > size)
+			result[size] = null;
+		return result;
+	}
+
+	private <A> A[] copyTo(final A[] target) {
+		int copied = 0;
+		int position = head;
+		for (int i = 0; copied < size; i++) {
+			int length = Math.min(segmentSize - position, size - copied);
+			System.arraycopy(segments[i], position, target, copied, length);
+			copied += length;
+			position = 0;
+		}
+		return target;
+	}
+}
@@ -0,0 +1,330 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A lock-free, size-limited FIFO-queue for many producers and many consumers.
+ * <p>
+ * Offers the same API and semantics as {@link DataQueue} (offering to a full
+ * queue drops the oldest element), but doesn't use a monitor, so producers
+ * don't convoy on a single lock.<br>
+ * It's a bounded ring-buffer where every slot carries a sequence-number telling
+ * producers and consumers whether it's theirs to fill or take (see Dmitry
+ * Vyukov's bounded MPMC queue). The producer- and consumer-positions are padded
+ * to live on separate cache-lines to avoid false sharing.
+ * <p>
+ * Methods that look at more than one element ({@link #getListClone()},
+ * {@link #size()}) are only weakly consistent while other threads are offering
+ * or polling.
+ */
+public class RingDataQueue<T> extends RingPadding2 {
+
+	private static final VarHandle SEQUENCES = MethodHandles.arrayElementVarHandle(long[].class);
+	private static final VarHandle PRODUCER_POSITION;
+	private static final VarHandle CONSUMER_POSITION;
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			PRODUCER_POSITION = lookup.findVarHandle(RingProducerPosition.class, "producerPosition", long.class);
+			CONSUMER_POSITION = lookup.findVarHandle(RingConsumerPosition.class, "consumerPosition", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final int capacity;
+	private final long[] sequences;
+	private final Object[] elements;
+	private volatile Consumer<T> evictionListener;
+
+	/**
+	 * Creates a new queue.
+	 *
+	 * @param maxSize the maximum number of elements; at least 2, since with a
+	 *                single slot a full slot looks like a free one to the
+	 *                producers
+	 */
+	public RingDataQueue(final int maxSize) {
+		if (maxSize < 2)
+			throw new IllegalArgumentException("The size must be greater than 1.");
+		capacity = maxSize;
+		sequences = new long[maxSize];
+		elements = new Object[maxSize];
+		for (int i = 0; i < maxSize; i++)
+			sequences[i] = i;
+	}
+
+	/**
+	 * Sets a listener that gets called with every element that is dropped from
+	 * the head of this queue, because a new element was offered while the queue
+	 * was full.
+	 * <p>
+	 * The listener is called by the offering thread.
+	 *
+	 * @param evictionListener the listener or null to remove it
+	 * @return this instance to provide a fluent interface
+	 */
+	public RingDataQueue<T> onEviction(final Consumer<T> evictionListener) {
+		this.evictionListener = evictionListener;
+		return this;
+	}
+
+	private int slotOf(final long position) {
+		return (int) (position % capacity);
+	}
+
+	/**
+	 * Inserts the specified element into this queue. If the queue is full, the
+	 * oldest element is dropped and reported to the eviction-listener, if there is
+	 * one.
+	 *
+	 * @param element the element to add
+	 * @return this instance to provide a fluent interface
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public RingDataQueue<T> offer(final T element) {
+		if (element == null)
+			throw new NullPointerException("This queue does not permit null elements.");
+		while (true) {
+			long position = (long) PRODUCER_POSITION.getVolatile(this);
+			int slot = slotOf(position);
+			long difference = (long) SEQUENCES.getAcquire(sequences, slot) - position;
+			if (difference == 0) {
+				if (PRODUCER_POSITION.compareAndSet(this, position, position + 1)) {
+					elements[slot] = element;
+					SEQUENCES.setRelease(sequences, slot, position + 1);
+					return this;
+				}
+			} else if (difference < 0) {
+				long consumer = (long) CONSUMER_POSITION.getVolatile(this);
+				if (position - consumer >= capacity) {
+					// The queue is full. Make room by dropping the oldest element.
+					T evicted = evict(consumer);
+					Consumer<T> listener = evictionListener;
+					if (evicted != null && listener != null)
+						listener.accept(evicted);
+				} else
+					// A consumer made room in the meantime.
+					Thread.onSpinWait();
+			} else
+				// Either another producer is filling the slot or a consumer has claimed
+				// it, but hasn't released it yet.
+				Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * Removes the head of this queue, if it's still at the given position. The
+	 * CAS on the consumer-position guarantees that the queue was still full when
+	 * the element got dropped, so a consumer polling in between doesn't make the
+	 * producer drop a second element.
+	 *
+	 * @return the dropped element or null, if the head moved on
+	 */
+	@SuppressWarnings("unchecked")
+	private T evict(final long consumer) {
+		int slot = slotOf(consumer);
+		if ((long) SEQUENCES.getAcquire(sequences, slot) != consumer + 1
+				|| !CONSUMER_POSITION.compareAndSet(this, consumer, consumer + 1)) {
+			Thread.onSpinWait();
+			return null;
+		}
+		T element = (T) elements[slot];
+		elements[slot] = null;
+		SEQUENCES.setRelease(sequences, slot, consumer + capacity);
+		return element;
+	}
+
+	/**
+	 * Retrieves and removes the head of this queue, or returns {@code null} if this
+	 * queue is empty.
+	 *
+	 * @return the head of this queue, or {@code null} if this queue is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T poll() {
+		while (true) {
+			long position = (long) CONSUMER_POSITION.getVolatile(this);
+			int slot = slotOf(position);
+			long difference = (long) SEQUENCES.getAcquire(sequences, slot) - (position + 1);
+			if (difference == 0) {
+				if (CONSUMER_POSITION.compareAndSet(this, position, position + 1)) {
+					T element = (T) elements[slot];
+					elements[slot] = null;
+					SEQUENCES.setRelease(sequences, slot, position + capacity);
+					return element;
+				}
+			} else if (difference < 0)
+				return null;
+			else
+				Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * Retrieves, but does not remove, the head of this queue, or returns
+	 * {@code null} if this queue is empty.
+	 *
+	 * @return the head of this queue, or {@code null} if this queue is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T peek() {
+		while (true) {
+			long position = (long) CONSUMER_POSITION.getVolatile(this);
+			int slot = slotOf(position);
+			long difference = (long) SEQUENCES.getAcquire(sequences, slot) - (position + 1);
+			if (difference < 0)
+				return null;
+			if (difference == 0) {
+				T element = (T) elements[slot];
+				// Only valid, if no consumer took the element in the meantime.
+				if (element != null && (long) CONSUMER_POSITION.getVolatile(this) == position)
+					return element;
+			}
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * Removes up to the given number of elements from the head of this queue and
+	 * adds them to the given collection.
+	 * <p>
+	 * The elements are claimed with a single CAS on the consumer-position.
+	 *
+	 * @param collection  the collection to transfer the elements to
+	 * @param maxElements the maximum number of elements to transfer
+	 * @return the number of elements transferred
+	 */
+	public int drainTo(final Collection<? super T> collection, final int maxElements) {
+		return drain(maxElements, null, collection);
+	}
+
+	/**
+	 * Removes as many elements from the head of this queue as fit into the given
+	 * buffer and copies them to the buffer, starting at index 0.
+	 * <p>
+	 * The elements are claimed with a single CAS on the consumer-position. Since
+	 * the buffer may be reused, this allows consuming the queue in batches without
+	 * allocating anything.
+	 *
+	 * @param buffer the array to transfer the elements to
+	 * @return the number of elements transferred
+	 */
+	public int drainTo(final T[] buffer) {
+		return drain(buffer.length, buffer, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	private int drain(final int maxElements, final T[] buffer, final Collection<? super T> collection) {
+		if (maxElements <= 0)
+			return 0;
+		while (true) {
+			long position = (long) CONSUMER_POSITION.getVolatile(this);
+			// Count the contiguous run of filled slots starting at the head.
+			int ready = 0;
+			while (ready < maxElements
+					&& (long) SEQUENCES.getAcquire(sequences, slotOf(position + ready)) == position + ready + 1)
+				ready++;
+			if (ready == 0) {
+				if ((long) SEQUENCES.getAcquire(sequences, slotOf(position)) - (position + 1) < 0)
+					return 0;
+			} else if (CONSUMER_POSITION.compareAndSet(this, position, position + ready)) {
+				for (int i = 0; i < ready; i++) {
+					int slot = slotOf(position + i);
+					T element = (T) elements[slot];
+					elements[slot] = null;
+					SEQUENCES.setRelease(sequences, slot, position + i + capacity);
+					if (buffer != null)
+						buffer[i] = element;
+					else
+						collection.add(element);
+				}
+				return ready;
+			}
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * Returns the number of elements in this queue.
+	 *
+	 * @return the number of elements
+	 */
+	public int size() {
+		long consumer = (long) CONSUMER_POSITION.getVolatile(this);
+		long producer = (long) PRODUCER_POSITION.getVolatile(this);
+		return (int) Math.max(0, Math.min(capacity, producer - consumer));
+	}
+
+	/**
+	 * Clears this queues' contents.
+	 */
+	public void clear() {
+		while (poll() != null)
+			;
+	}
+
+	/**
+	 * Gets a copy of this queue as an {@link ArrayList}.
+	 *
+	 * @return the list
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> getListClone() {
+		List<T> list = new ArrayList<>();
+		long position = (long) CONSUMER_POSITION.getVolatile(this);
+		long end = (long) PRODUCER_POSITION.getVolatile(this);
+		for (; position < end; position++) {
+			int slot = slotOf(position);
+			if ((long) SEQUENCES.getAcquire(sequences, slot) != position + 1)
+				continue;
+			Object element = elements[slot];
+			if (element != null)
+				list.add((T) element);
+		}
+		return list;
+	}
+
+	/**
+	 * Removes all elements from this queue and returns them as an
+	 * {@link ArrayList}.
+	 *
+	 * @return the list
+	 */
+	public List<T> getListCloneAndClear() {
+		List<T> list = new ArrayList<>(size());
+		T element;
+		while ((element = poll()) != null)
+			list.add(element);
+		return list;
+	}
+}
+
+/**
+ * Padding separating the position of the producers from the object header and
+ * from the fields of the subclasses.
+ */
+abstract class RingPadding0 {
+	long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class RingProducerPosition extends RingPadding0 {
+	volatile long producerPosition;
+}
+
+abstract class RingPadding1 extends RingProducerPosition {
+	long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class RingConsumerPosition extends RingPadding1 {
+	volatile long consumerPosition;
+}
+
+abstract class RingPadding2 extends RingConsumerPosition {
+	long p20, p21, p22, p23, p24, p25, p26, p27;
+}
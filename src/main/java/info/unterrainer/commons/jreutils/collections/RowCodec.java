@@ -0,0 +1,40 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes rows of an {@link OffHeapDataTable} into a fixed number of bytes and
+ * decodes them again.
+ * <p>
+ * Use the absolute get- and put-methods of the buffer (the ones taking an
+ * index), since the buffer is shared by all rows and by concurrent readers.
+ *
+ * @param <T> the type of the rows
+ */
+public interface RowCodec<T> {
+
+	/**
+	 * Gets the number of bytes every row takes.
+	 *
+	 * @return the size of a row in bytes
+	 */
+	int rowSize();
+
+	/**
+	 * Writes the given row to the buffer.
+	 *
+	 * @param row    the row to write
+	 * @param buffer the buffer to write to
+	 * @param offset the index of the first byte of the row in the buffer
+	 */
+	void encode(T row, ByteBuffer buffer, int offset);
+
+	/**
+	 * Reads a row from the buffer.
+	 *
+	 * @param buffer the buffer to read from
+	 * @param offset the index of the first byte of the row in the buffer
+	 * @return the row
+	 */
+	T decode(ByteBuffer buffer, int offset);
+}
@@ -0,0 +1,31 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes and reads single rows of a {@link DataTable} when saving it to or
+ * restoring it from a file.
+ */
+public interface RowSerializer<T> {
+
+	/**
+	 * Writes the given row.
+	 *
+	 * @param row the row to write
+	 * @param out the output to write to
+	 * @throws IOException if one occurs
+	 */
+	void write(T row, DataOutput out) throws IOException;
+
+	/**
+	 * Reads a single row in the same format it was written by
+	 * {@link #write(Object, DataOutput)}.
+	 *
+	 * @param in the input to read from
+	 * @return the row
+	 * @throws IOException if one occurs
+	 */
+	T read(DataInput in) throws IOException;
+}
@@ -1,22 +1,531 @@
 package info.unterrainer.commons.jreutils.collections;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongBiFunction;
 
 /**
  * A size-limited hash-map.
+ * <p>
+ * By default the oldest entry is discarded on a size-overflow. Using an
+ * {@link EvictionPolicy} it may instead discard the least recently used entry,
+ * limit the total weight of its entries or let entries expire.<br>
+ * Expired entries are reclaimed lazily: a read of an expired entry removes it
+ * and every write removes expired entries from the head of the map. Call
+ * {@link #cleanUp()} (maybe from a scheduled task) to reclaim all of them.
+ * Until then they still count towards {@link #size()}.
+ * <p>
+ * Weights and the times entries have been written and accessed are kept
+ * together with the value of every entry, so tracking them doesn't cost a
+ * second lookup. They are maintained by all methods of the map and by its
+ * {@link #values()} and {@link #entrySet()}, but not by removals through its
+ * {@link #keySet()}. In maps in access-order {@code containsKey} and
+ * {@link #needsRefresh(Object)} count as an access of the entry as well.
+ * <p>
+ * Maps limiting the weight or letting entries expire can't be serialized, since
+ * their weighers and tickers usually can't. Trying to throws a
+ * {@link NotSerializableException}.
  */
 public class SizeLimitedHashMap<K, V> extends LinkedHashMap<K, V> {
-	private static final long serialVersionUID = 6994714918898609875L;
+	private static final long serialVersionUID = -2911734573626520784L;
 
 	private final int maxSize;
+	private final transient ToLongBiFunction<K, V> weigher;
+	private final long maxWeight;
+	private final long expireAfterWriteNanos;
+	private final long expireAfterAccessNanos;
+	private final long refreshAfterWriteNanos;
+	private final transient LongSupplier ticker;
+	/**
+	 * If true, the values of the underlying map are {@link Node}s instead of the
+	 * values themselves.
+	 */
+	private final boolean tracking;
+	private long totalWeight;
+
+	private static final class Node<V> {
+		V value;
+		long weight;
+		long written;
+		long accessed;
+
+		Node(final V value, final long weight, final long now) {
+			this.value = value;
+			this.weight = weight;
+			written = now;
+			accessed = now;
+		}
+	}
 
 	public SizeLimitedHashMap(final int maxSize) {
 		this.maxSize = maxSize;
+		weigher = null;
+		maxWeight = Long.MAX_VALUE;
+		expireAfterWriteNanos = 0L;
+		expireAfterAccessNanos = 0L;
+		refreshAfterWriteNanos = 0L;
+		ticker = null;
+		tracking = false;
+	}
+
+	public SizeLimitedHashMap(final EvictionPolicy<K, V> policy) {
+		super(16, 0.75f, policy.isAccessOrder());
+		maxSize = policy.getMaxSize();
+		weigher = policy.getWeigher();
+		maxWeight = policy.getMaxWeight();
+		expireAfterWriteNanos = policy.getExpireAfterWrite() == null ? 0L : policy.getExpireAfterWrite().toNanos();
+		expireAfterAccessNanos = policy.getExpireAfterAccess() == null ? 0L
+				: policy.getExpireAfterAccess().toNanos();
+		refreshAfterWriteNanos = policy.getRefreshAfterWrite() == null ? 0L
+				: policy.getRefreshAfterWrite().toNanos();
+		ticker = policy.getTicker();
+		tracking = weigher != null || expireAfterWriteNanos > 0L || expireAfterAccessNanos > 0L
+				|| refreshAfterWriteNanos > 0L;
+	}
+
+	/**
+	 * Gets the sum of the weights of all entries, if there is a weigher.
+	 *
+	 * @return the total weight
+	 */
+	public long weight() {
+		return totalWeight;
 	}
 
 	@Override
 	protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
-		return size() > maxSize;
+		if (size() <= maxSize)
+			return false;
+		if (tracking)
+			totalWeight -= node(eldest.getValue()).weight;
+		return true;
+	}
+
+	@Override
+	public V get(final Object key) {
+		if (!tracking)
+			return super.get(key);
+		Node<V> n = node(super.get(key));
+		if (n == null)
+			return null;
+		long now = ticker.getAsLong();
+		if (isExpired(n, now)) {
+			remove(key);
+			return null;
+		}
+		n.accessed = now;
+		return n.value;
+	}
+
+	@Override
+	public V getOrDefault(final Object key, final V defaultValue) {
+		V value = get(key);
+		return value == null ? defaultValue : value;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		if (!tracking)
+			return super.containsKey(key);
+		Node<V> n = node(super.get(key));
+		if (n == null)
+			return false;
+		if (isExpired(n, ticker.getAsLong())) {
+			remove(key);
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean containsValue(final Object value) {
+		if (!tracking)
+			return super.containsValue(value);
+		for (V v : super.values())
+			if (Objects.equals(node(v).value, value))
+				return true;
+		return false;
+	}
+
+	@Override
+	public V put(final K key, final V value) {
+		if (!tracking)
+			return super.put(key, value);
+		long now = ticker.getAsLong();
+		expireHead(now);
+		Node<V> n = new Node<>(value, weigher == null ? 0L : weigher.applyAsLong(key, value), now);
+		totalWeight += n.weight;
+		Node<V> old = node(super.put(key, wrap(n)));
+		if (old != null)
+			totalWeight -= old.weight;
+		evictByWeight();
+		return old == null ? null : old.value;
+	}
+
+	@Override
+	public void putAll(final Map<? extends K, ? extends V> m) {
+		if (!tracking) {
+			super.putAll(m);
+			return;
+		}
+		for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
+			put(e.getKey(), e.getValue());
+	}
+
+	@Override
+	public V putIfAbsent(final K key, final V value) {
+		if (!tracking)
+			return super.putIfAbsent(key, value);
+		V existing = get(key);
+		if (existing == null)
+			put(key, value);
+		return existing;
+	}
+
+	@Override
+	public V remove(final Object key) {
+		if (!tracking)
+			return super.remove(key);
+		Node<V> n = node(super.remove(key));
+		if (n == null)
+			return null;
+		totalWeight -= n.weight;
+		return n.value;
+	}
+
+	@Override
+	public boolean remove(final Object key, final Object value) {
+		if (!tracking)
+			return super.remove(key, value);
+		Node<V> n = node(super.get(key));
+		if (n == null || !Objects.equals(n.value, value))
+			return false;
+		super.remove(key);
+		totalWeight -= n.weight;
+		return true;
+	}
+
+	@Override
+	public V replace(final K key, final V value) {
+		if (!tracking)
+			return super.replace(key, value);
+		return containsKey(key) ? put(key, value) : null;
+	}
+
+	@Override
+	public boolean replace(final K key, final V oldValue, final V newValue) {
+		if (!tracking)
+			return super.replace(key, oldValue, newValue);
+		if (!containsKey(key) || !Objects.equals(get(key), oldValue))
+			return false;
+		put(key, newValue);
+		return true;
+	}
+
+	@Override
+	public V computeIfAbsent(final K key, final Function<? super K, ? extends V> mappingFunction) {
+		if (!tracking)
+			return super.computeIfAbsent(key, mappingFunction);
+		V value = get(key);
+		if (value != null)
+			return value;
+		value = mappingFunction.apply(key);
+		if (value != null)
+			put(key, value);
+		return value;
+	}
+
+	@Override
+	public V computeIfPresent(final K key, final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		if (!tracking)
+			return super.computeIfPresent(key, remappingFunction);
+		V old = get(key);
+		if (old == null)
+			return null;
+		return store(key, remappingFunction.apply(key, old));
+	}
+
+	@Override
+	public V compute(final K key, final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		if (!tracking)
+			return super.compute(key, remappingFunction);
+		return store(key, remappingFunction.apply(key, get(key)));
+	}
+
+	@Override
+	public V merge(final K key, final V value, final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		if (!tracking)
+			return super.merge(key, value, remappingFunction);
+		V old = get(key);
+		return store(key, old == null ? value : remappingFunction.apply(old, value));
+	}
+
+	@Override
+	public void forEach(final BiConsumer<? super K, ? super V> action) {
+		if (!tracking) {
+			super.forEach(action);
+			return;
+		}
+		super.forEach((k, v) -> action.accept(k, node(v).value));
+	}
+
+	@Override
+	public void replaceAll(final BiFunction<? super K, ? super V, ? extends V> function) {
+		if (!tracking) {
+			super.replaceAll(function);
+			return;
+		}
+		long now = ticker.getAsLong();
+		for (Map.Entry<K, V> e : super.entrySet())
+			update(e.getKey(), node(e.getValue()), function.apply(e.getKey(), node(e.getValue()).value), now);
+		evictByWeight();
+	}
+
+	@Override
+	public Collection<V> values() {
+		if (!tracking)
+			return super.values();
+		return new AbstractCollection<>() {
+			@Override
+			public Iterator<V> iterator() {
+				Iterator<Map.Entry<K, V>> it = new EntryIterator();
+				return new Iterator<>() {
+					@Override
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					@Override
+					public V next() {
+						return it.next().getValue();
+					}
+
+					@Override
+					public void remove() {
+						it.remove();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return SizeLimitedHashMap.this.size();
+			}
+
+			@Override
+			public void clear() {
+				SizeLimitedHashMap.this.clear();
+			}
+		};
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		if (!tracking)
+			return super.entrySet();
+		return new AbstractSet<>() {
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return SizeLimitedHashMap.this.size();
+			}
+
+			@Override
+			public void clear() {
+				SizeLimitedHashMap.this.clear();
+			}
+		};
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		totalWeight = 0L;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object clone() {
+		SizeLimitedHashMap<K, V> clone = (SizeLimitedHashMap<K, V>) super.clone();
+		if (!tracking)
+			return clone;
+		// The clone has been filled using our entry-set, so it holds the values
+		// themselves instead of their nodes, in the same order.
+		Iterator<Map.Entry<K, V>> it = super.entrySet().iterator();
+		for (Map.Entry<K, V> e : clone.entries()) {
+			Node<V> n = node(it.next().getValue());
+			Node<V> copy = new Node<>(n.value, n.weight, n.written);
+			copy.accessed = n.accessed;
+			e.setValue(wrap(copy));
+		}
+		return clone;
+	}
+
+	/**
+	 * Tells if an entry has been written longer ago than the refresh-time of the
+	 * eviction-policy, so it should be reloaded.
+	 *
+	 * @param key the key of the entry
+	 * @return true, if the entry exists and should be reloaded
+	 */
+	public boolean needsRefresh(final Object key) {
+		if (refreshAfterWriteNanos == 0L)
+			return false;
+		Node<V> n = node(super.get(key));
+		return n != null && ticker.getAsLong() - n.written >= refreshAfterWriteNanos;
+	}
+
+	/**
+	 * Removes all expired entries.
+	 */
+	public void cleanUp() {
+		if (!tracking)
+			return;
+		long now = ticker.getAsLong();
+		for (Iterator<Map.Entry<K, V>> it = super.entrySet().iterator(); it.hasNext();) {
+			Node<V> n = node(it.next().getValue());
+			if (isExpired(n, now)) {
+				it.remove();
+				totalWeight -= n.weight;
+			}
+		}
+	}
+
+	private void writeObject(final ObjectOutputStream out) throws IOException {
+		if (tracking)
+			throw new NotSerializableException(String.format(
+					"[%s] limiting the weight or letting entries expire can't be serialized.", getClass().getName()));
+		out.defaultWriteObject();
+	}
+
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (tracking)
+			throw new InvalidObjectException(String.format(
+					"[%s] limiting the weight or letting entries expire can't be deserialized.", getClass().getName()));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Node<V> node(final Object stored) {
+		return (Node<V>) stored;
+	}
+
+	@SuppressWarnings("unchecked")
+	private V wrap(final Node<V> n) {
+		return (V) n;
+	}
+
+	/**
+	 * Gets the entries of the underlying map, which hold the nodes.
+	 */
+	private Set<Map.Entry<K, V>> entries() {
+		return super.entrySet();
+	}
+
+	/**
+	 * Puts or removes (if it's null) the given value, like {@code compute} does.
+	 */
+	private V store(final K key, final V value) {
+		if (value == null)
+			remove(key);
+		else
+			put(key, value);
+		return value;
+	}
+
+	/**
+	 * Sets the value of the given node in place, so iterating the map isn't
+	 * disturbed.
+	 */
+	private V update(final K key, final Node<V> n, final V value, final long now) {
+		V old = n.value;
+		long weight = weigher == null ? 0L : weigher.applyAsLong(key, value);
+		totalWeight += weight - n.weight;
+		n.value = value;
+		n.weight = weight;
+		n.written = now;
+		n.accessed = now;
+		return old;
+	}
+
+	private boolean isExpired(final Node<V> n, final long now) {
+		return expireAfterWriteNanos > 0L && now - n.written >= expireAfterWriteNanos
+				|| expireAfterAccessNanos > 0L && now - n.accessed >= expireAfterAccessNanos;
+	}
+
+	private void expireHead(final long now) {
+		if (expireAfterWriteNanos == 0L && expireAfterAccessNanos == 0L)
+			return;
+		for (Iterator<Map.Entry<K, V>> it = super.entrySet().iterator(); it.hasNext();) {
+			Node<V> n = node(it.next().getValue());
+			if (!isExpired(n, now))
+				return;
+			it.remove();
+			totalWeight -= n.weight;
+		}
+	}
+
+	private void evictByWeight() {
+		for (Iterator<Map.Entry<K, V>> it = super.entrySet().iterator(); totalWeight > maxWeight && it.hasNext();) {
+			totalWeight -= node(it.next().getValue()).weight;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Iterates the entries of the underlying map, handing out their values
+	 * instead of their nodes.
+	 */
+	private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+		private final Iterator<Map.Entry<K, V>> it = entries().iterator();
+		private Node<V> last;
+
+		@Override
+		public boolean hasNext() {
+			return it.hasNext();
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			Map.Entry<K, V> e = it.next();
+			Node<V> n = node(e.getValue());
+			last = n;
+			return new AbstractMap.SimpleEntry<>(e.getKey(), n.value) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public V setValue(final V value) {
+					super.setValue(value);
+					return update(getKey(), n, value, ticker.getAsLong());
+				}
+			};
+		}
+
+		@Override
+		public void remove() {
+			it.remove();
+			totalWeight -= last.weight;
+		}
 	}
 }
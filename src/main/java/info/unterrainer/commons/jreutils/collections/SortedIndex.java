@@ -0,0 +1,154 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * An index keeping its elements sorted by key.
+ * <p>
+ * Allows for range-queries. Elements with equal keys are kept in insertion
+ * order.
+ */
+class SortedIndex<T> extends DataIndex<T> {
+
+	private final Function<T, Object> keySupplier;
+	private final Comparator<Object> comparator;
+	private final TreeMap<Object, List<T>> map;
+
+	SortedIndex(final String name, final Function<T, Object> keySupplier, final Comparator<Object> comparator,
+			final Function<T, Boolean> filter) {
+		super(name, filter);
+		this.keySupplier = keySupplier;
+		this.comparator = comparator;
+		map = new TreeMap<>(comparator);
+	}
+
+	@SuppressWarnings("unchecked")
+	private int compare(final Object a, final Object b) {
+		if (comparator != null)
+			return comparator.compare(a, b);
+		return ((Comparable<Object>) a).compareTo(b);
+	}
+
+	/**
+	 * Checks if the given element is referenced by this index under a key within
+	 * the given range, comparing by identity like the other indexes do.
+	 */
+	boolean matches(final T element, final Object from, final Object to) {
+		if (!accepts(element))
+			return false;
+		Object key = keySupplier.apply(element);
+		if (from != null && compare(key, from) < 0 || to != null && compare(key, to) >= 0)
+			return false;
+		List<T> list = map.get(key);
+		if (list == null)
+			return false;
+		for (T candidate : list)
+			if (candidate == element)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Gets a view of the entries whose keys are in the given range.
+	 *
+	 * @param from the lower bound (inclusive) or null for no lower bound
+	 * @param to   the upper bound (exclusive) or null for no upper bound
+	 * @return the view
+	 */
+	NavigableMap<Object, List<T>> range(final Object from, final Object to) {
+		if (from == null && to == null)
+			return map;
+		if (from == null)
+			return map.headMap(to, false);
+		if (to == null)
+			return map.tailMap(from, true);
+		return map.subMap(from, true, to, false);
+	}
+
+	void forEach(final Object from, final Object to, final Consumer<? super T> consumer) {
+		for (List<T> list : range(from, to).values())
+			for (T element : list)
+				consumer.accept(element);
+	}
+
+	List<T> toList(final Object from, final Object to) {
+		List<T> result = new ArrayList<>();
+		forEach(from, to, result::add);
+		return result;
+	}
+
+	List<T> first(final int count) {
+		List<T> result = new ArrayList<>(Math.min(count, 64));
+		for (List<T> list : map.values())
+			for (T element : list) {
+				if (result.size() >= count)
+					return result;
+				result.add(element);
+			}
+		return result;
+	}
+
+	List<T> last(final int count) {
+		List<T> result = new ArrayList<>(Math.min(count, 64));
+		for (List<T> list : map.descendingMap().values())
+			for (int i = list.size() - 1; i >= 0; i--) {
+				if (result.size() >= count)
+					return result;
+				result.add(list.get(i));
+			}
+		return result;
+	}
+
+	private void insert(final Object key, final T element) {
+		map.computeIfAbsent(key, k -> new ArrayList<>(1)).add(element);
+	}
+
+	@Override
+	void put(final T element) {
+		if (accepts(element))
+			insert(keySupplier.apply(element), element);
+	}
+
+	@Override
+	boolean remove(final T element) {
+		Object key = keySupplier.apply(element);
+		List<T> list = map.get(key);
+		if (list == null)
+			return false;
+		for (Iterator<T> iterator = list.iterator(); iterator.hasNext();)
+			if (iterator.next() == element) {
+				iterator.remove();
+				if (list.isEmpty())
+					map.remove(key);
+				return true;
+			}
+		return false;
+	}
+
+	@Override
+	void clear() {
+		map.clear();
+	}
+
+	@Override
+	IntConsumer prepare(final List<T> elements) {
+		Object[] keys = new Object[elements.size()];
+		for (int i = 0; i < keys.length; i++) {
+			T element = elements.get(i);
+			keys[i] = accepts(element) ? keySupplier.apply(element) : SKIPPED;
+		}
+		return from -> {
+			for (int i = from; i < keys.length; i++)
+				if (keys[i] != SKIPPED)
+					insert(keys[i], elements.get(i));
+		};
+	}
+}
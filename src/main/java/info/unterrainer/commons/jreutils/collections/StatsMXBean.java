@@ -0,0 +1,27 @@
+package info.unterrainer.commons.jreutils.collections;
+
+/**
+ * The JMX-view of a {@link StatsRecorder}.
+ *
+ * @see JmxStats
+ */
+public interface StatsMXBean {
+
+	long getHits();
+
+	long getMisses();
+
+	double getHitRate();
+
+	long getPuts();
+
+	long getEvictions();
+
+	long getLoads();
+
+	long getLoadFailures();
+
+	double getAverageLoadTimeNanos();
+
+	long getHighWaterMark();
+}
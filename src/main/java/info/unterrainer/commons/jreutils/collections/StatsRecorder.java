@@ -0,0 +1,94 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records statistics of a {@link DataMap}, {@link DataQueue}, {@link DataTable}
+ * or one of the indexes of a DataTable.
+ * <p>
+ * Uses striped counters ({@link LongAdder}), so recording costs almost nothing,
+ * even if many threads record at the same time. Get the values using
+ * {@link #snapshot()}.
+ */
+public class StatsRecorder {
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder puts = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder loadFailures = new LongAdder();
+	private final LongAdder totalLoadTime = new LongAdder();
+	private final LongAccumulator highWaterMark = new LongAccumulator(Math::max, 0L);
+
+	public void recordHit() {
+		hits.increment();
+	}
+
+	public void recordHits(final long count) {
+		hits.add(count);
+	}
+
+	public void recordMiss() {
+		misses.increment();
+	}
+
+	public void recordPut() {
+		puts.increment();
+	}
+
+	public void recordPuts(final long count) {
+		puts.add(count);
+	}
+
+	public void recordEviction() {
+		evictions.increment();
+	}
+
+	public void recordEvictions(final long count) {
+		evictions.add(count);
+	}
+
+	/**
+	 * Records a successful call of a loader.
+	 *
+	 * @param nanos the time it took
+	 */
+	public void recordLoad(final long nanos) {
+		loads.increment();
+		totalLoadTime.add(nanos);
+	}
+
+	/**
+	 * Records a call of a loader that threw an exception.
+	 *
+	 * @param nanos the time it took
+	 */
+	public void recordLoadFailure(final long nanos) {
+		loadFailures.increment();
+		totalLoadTime.add(nanos);
+	}
+
+	/**
+	 * Records the current size, raising the high-water mark if it's larger.
+	 *
+	 * @param size the current size
+	 */
+	public void recordSize(final long size) {
+		highWaterMark.accumulate(size);
+	}
+
+	/**
+	 * Gets the current values of all counters.
+	 * <p>
+	 * The values are read one after the other, so they aren't consistent with each
+	 * other while other threads keep recording.
+	 *
+	 * @return the snapshot
+	 */
+	public StatsSnapshot snapshot() {
+		return new StatsSnapshot(hits.sum(), misses.sum(), puts.sum(), evictions.sum(), loads.sum(),
+				loadFailures.sum(), totalLoadTime.sum(), highWaterMark.get());
+	}
+}
@@ -0,0 +1,51 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * The values of a {@link StatsRecorder} at a given time.
+ */
+@Getter
+@ToString
+@Accessors(fluent = true)
+@RequiredArgsConstructor
+public class StatsSnapshot {
+
+	/**
+	 * A snapshot with all values being 0, returned by collections that don't
+	 * record statistics.
+	 */
+	public static final StatsSnapshot EMPTY = new StatsSnapshot(0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L);
+
+	private final long hits;
+	private final long misses;
+	private final long puts;
+	private final long evictions;
+	private final long loads;
+	private final long loadFailures;
+	private final long totalLoadTimeNanos;
+	private final long highWaterMark;
+
+	/**
+	 * Gets the ratio of hits to all lookups.
+	 *
+	 * @return the hit-rate between 0 and 1, or 1, if there were no lookups
+	 */
+	public double hitRate() {
+		long requests = hits + misses;
+		return requests == 0L ? 1.0 : (double) hits / requests;
+	}
+
+	/**
+	 * Gets the average time a call of a loader took.
+	 *
+	 * @return the average load-time in nanoseconds
+	 */
+	public double averageLoadTimeNanos() {
+		long count = loads + loadFailures;
+		return count == 0L ? 0.0 : (double) totalLoadTimeNanos / count;
+	}
+}
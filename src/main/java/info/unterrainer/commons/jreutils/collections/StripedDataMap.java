@@ -0,0 +1,295 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * A synchronized, size-limited hash-map that partitions its keys across a
+ * number of independent {@link DataMap}s (stripes), each of them with its own
+ * lock and its own share of the size-limit.
+ * <p>
+ * Threads accessing keys in different stripes don't contend, so throughput
+ * scales with the number of cores. The size-limit is approximate, since every
+ * stripe evicts on its own once it reaches {@code maxSize / stripes} entries.
+ * <p>
+ * Methods spanning all stripes ({@link #values()}, {@link #keySet()},
+ * {@link #entrySet()}, {@link #getMapClone()}, {@link #getMapCloneAndClear()},
+ * ...) lock one stripe at a time and return copies. They are atomic per stripe,
+ * but not across all of them.
+ * <p>
+ * Offers the API of {@link DataMap}, including its loading methods, which
+ * coalesce concurrent misses of the same key across all stripes.
+ */
+public class StripedDataMap<K, V> {
+
+	private final DataMap<K, V>[] stripes;
+	private final int mask;
+	private volatile StatsRecorder stats;
+	private final CoalescingLoader<K, V> loading = new CoalescingLoader<>() {
+
+		@Override
+		V get(final K key) {
+			return StripedDataMap.this.get(key);
+		}
+
+		@Override
+		V peek(final K key) {
+			return stripeOf(key).peek(key);
+		}
+
+		@Override
+		void put(final K key, final V value) {
+			StripedDataMap.this.put(key, value);
+		}
+
+		@Override
+		boolean needsRefresh(final K key) {
+			return stripeOf(key).needsRefresh(key);
+		}
+
+		@Override
+		StatsRecorder recorder() {
+			return stats;
+		}
+	};
+
+	/**
+	 * Creates a new map with a number of stripes depending on the available
+	 * processors.
+	 *
+	 * @param maxSize the approximate maximum number of entries
+	 */
+	public StripedDataMap(final int maxSize) {
+		this(maxSize, 4 * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a new map.
+	 *
+	 * @param maxSize the approximate maximum number of entries
+	 * @param stripes the number of stripes; rounded up to the next power of two,
+	 *                but never more than {@code maxSize}
+	 */
+	public StripedDataMap(final int maxSize, final int stripes) {
+		this(EvictionPolicy.<K, V>builder().maxSize(maxSize).build(), stripes);
+	}
+
+	/**
+	 * Creates a new map evicting entries according to the given policy.
+	 * <p>
+	 * Every stripe gets its share of the {@code maxSize} and the
+	 * {@code maxWeight} of the policy. All other limits apply to every stripe as
+	 * they are.
+	 *
+	 * @param policy  the eviction-policy of the whole map
+	 * @param stripes the number of stripes; rounded up to the next power of two,
+	 *                but never more than {@code maxSize}
+	 */
+	@SuppressWarnings("unchecked")
+	public StripedDataMap(final EvictionPolicy<K, V> policy, final int stripes) {
+		if (policy.getMaxSize() <= 0)
+			throw new IllegalArgumentException("The size must be greater than 0.");
+		if (stripes <= 0)
+			throw new IllegalArgumentException("The number of stripes must be greater than 0.");
+		int count = 1;
+		while (count < stripes && count * 2 <= policy.getMaxSize())
+			count *= 2;
+		EvictionPolicy<K, V> stripePolicy = policy.toBuilder()
+				.maxSize((int) shareOf(policy.getMaxSize(), Integer.MAX_VALUE, count))
+				.maxWeight(shareOf(policy.getMaxWeight(), Long.MAX_VALUE, count))
+				.build();
+		this.stripes = new DataMap[count];
+		for (int i = 0; i < count; i++)
+			this.stripes[i] = new DataMap<>(stripePolicy);
+		mask = count - 1;
+	}
+
+	/**
+	 * Gets the share of a stripe of the given limit, rounded up. An unlimited
+	 * limit stays unlimited.
+	 */
+	private static long shareOf(final long limit, final long unlimited, final int count) {
+		if (limit == unlimited)
+			return unlimited;
+		return limit / count + (limit % count == 0 ? 0 : 1);
+	}
+
+	private DataMap<K, V> stripeOf(final Object key) {
+		int h = key == null ? 0 : key.hashCode();
+		return stripes[(h ^ (h >>> 16)) & mask];
+	}
+
+	/**
+	 * Gets the number of stripes.
+	 *
+	 * @return the number of stripes
+	 */
+	public int stripes() {
+		return stripes.length;
+	}
+
+	/**
+	 * Starts recording hits, misses, puts, evictions and load-times of this map.
+	 *
+	 * @return this instance to provide a fluent interface
+	 */
+	public StripedDataMap<K, V> recordStats() {
+		return recordStats(new StatsRecorder());
+	}
+
+	/**
+	 * Starts recording hits, misses, puts, evictions and load-times of this map
+	 * using the given recorder (that you may register using {@link JmxStats}, for
+	 * example).
+	 *
+	 * @param recorder the recorder or null to stop recording
+	 * @return this instance to provide a fluent interface
+	 */
+	public StripedDataMap<K, V> recordStats(final StatsRecorder recorder) {
+		stats = recorder;
+		return this;
+	}
+
+	/**
+	 * Gets the statistics of this map.
+	 *
+	 * @return the snapshot, or {@link StatsSnapshot#EMPTY}, if this map doesn't
+	 *         record statistics
+	 */
+	public StatsSnapshot stats() {
+		StatsRecorder recorder = stats;
+		return recorder == null ? StatsSnapshot.EMPTY : recorder.snapshot();
+	}
+
+	public StripedDataMap<K, V> put(final K key, final V value) {
+		StatsRecorder recorder = stats;
+		if (recorder == null) {
+			stripeOf(key).put(key, value);
+			return this;
+		}
+		recorder.recordPut();
+		recorder.recordEvictions(stripeOf(key).putAndCountEvictions(key, value));
+		return this;
+	}
+
+	public Collection<V> values() {
+		Collection<V> values = new ArrayList<>();
+		for (DataMap<K, V> stripe : stripes)
+			synchronized (stripe) {
+				values.addAll(stripe.values());
+			}
+		return values;
+	}
+
+	public Set<K> keySet() {
+		Set<K> keys = new HashSet<>();
+		for (DataMap<K, V> stripe : stripes)
+			synchronized (stripe) {
+				keys.addAll(stripe.keySet());
+			}
+		return keys;
+	}
+
+	public Set<Entry<K, V>> entrySet() {
+		return getMapClone().entrySet();
+	}
+
+	public boolean containsKey(final Object key) {
+		return stripeOf(key).containsKey(key);
+	}
+
+	public boolean containsValue(final Object value) {
+		for (DataMap<K, V> stripe : stripes)
+			if (stripe.containsValue(value))
+				return true;
+		return false;
+	}
+
+	public boolean isEmpty() {
+		for (DataMap<K, V> stripe : stripes)
+			if (!stripe.isEmpty())
+				return false;
+		return true;
+	}
+
+	public void clear() {
+		for (DataMap<K, V> stripe : stripes)
+			stripe.clear();
+	}
+
+	public V get(final K key) {
+		V value = stripeOf(key).get(key);
+		StatsRecorder recorder = stats;
+		if (recorder != null) {
+			if (value != null)
+				recorder.recordHit();
+			else
+				recorder.recordMiss();
+		}
+		return value;
+	}
+
+	public V remove(final K key) {
+		return stripeOf(key).remove(key);
+	}
+
+	/**
+	 * See {@link DataMap#computeIfAbsent(Object, Function)}.
+	 */
+	public V computeIfAbsent(final K key, final Function<? super K, ? extends V> loader) {
+		return loading.computeIfAbsent(key, loader);
+	}
+
+	/**
+	 * See {@link DataMap#computeIfAbsentAsync(Object, Function)}.
+	 */
+	public CompletableFuture<V> computeIfAbsentAsync(final K key,
+			final Function<? super K, ? extends CompletableFuture<? extends V>> loader) {
+		return loading.computeIfAbsentAsync(key, loader);
+	}
+
+	/**
+	 * See {@link DataMap#getAll(Collection, Function)}.
+	 */
+	public Map<K, V> getAll(final Collection<? extends K> keys,
+			final Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> bulkLoader) {
+		return loading.getAll(keys, bulkLoader);
+	}
+
+	/**
+	 * Removes all expired entries of all stripes, if the eviction-policy lets
+	 * entries expire.
+	 */
+	public void cleanUp() {
+		for (DataMap<K, V> stripe : stripes)
+			stripe.cleanUp();
+	}
+
+	public int size() {
+		int size = 0;
+		for (DataMap<K, V> stripe : stripes)
+			size += stripe.size();
+		return size;
+	}
+
+	public Map<K, V> getMapClone() {
+		Map<K, V> clone = new HashMap<>();
+		for (DataMap<K, V> stripe : stripes)
+			clone.putAll(stripe.getMapClone());
+		return clone;
+	}
+
+	public Map<K, V> getMapCloneAndClear() {
+		Map<K, V> clone = new HashMap<>();
+		for (DataMap<K, V> stripe : stripes)
+			clone.putAll(stripe.getMapCloneAndClear());
+		return clone;
+	}
+}
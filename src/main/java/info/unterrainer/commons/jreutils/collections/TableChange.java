@@ -0,0 +1,43 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * A single mutation of a {@link DataTable}, as published by
+ * {@link DataTable#changes()}.
+ * <p>
+ * The sequence numbers of a table are consecutive and start at 1, so a
+ * subscriber is able to tell whether it missed a change.
+ */
+@Getter
+@ToString
+@Accessors(fluent = true)
+@RequiredArgsConstructor
+public class TableChange<T> {
+
+	public enum Type {
+		/**
+		 * The element has been added.
+		 */
+		INSERT,
+		/**
+		 * The element has been dropped, because the table was full.
+		 */
+		EVICT,
+		/**
+		 * The element has been polled from the table.
+		 */
+		REMOVE,
+		/**
+		 * All elements have been removed. The element is null.
+		 */
+		CLEAR
+	}
+
+	private final long sequence;
+	private final Type type;
+	private final T element;
+}
@@ -0,0 +1,134 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * The binary format of a saved {@link DataTable}.
+ * <p>
+ * {@code MAGIC | rows... | row-count (int) | CRC32 of the rows (long) | MAGIC}
+ * <p>
+ * The footer is written after the rows, so the rows are streamed without
+ * knowing their size in advance. A file that was torn while writing is detected
+ * by the missing trailing magic-number or a checksum mismatch.
+ */
+@UtilityClass
+class TableFile {
+
+	private static final int MAGIC = 0x44544231;
+	private static final int FOOTER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+	static <T> void write(final OutputStream out, final List<T> rows, final RowSerializer<T> serializer)
+			throws IOException {
+		DataOutputStream header = new DataOutputStream(out);
+		header.writeInt(MAGIC);
+		header.flush();
+
+		CRC32 crc = new CRC32();
+		DataOutputStream body = new DataOutputStream(new CheckedOutputStream(out, crc));
+		for (T row : rows)
+			serializer.write(row, body);
+		body.flush();
+
+		DataOutputStream footer = new DataOutputStream(out);
+		footer.writeInt(rows.size());
+		footer.writeLong(crc.getValue());
+		footer.writeInt(MAGIC);
+		footer.flush();
+	}
+
+	/**
+	 * Reads the rows from the given channel, streaming the file twice: once to
+	 * verify its checksum and once to read the rows, so neither the file nor a
+	 * corrupt row ever has to be held in memory.
+	 */
+	static <T> List<T> read(final FileChannel channel, final RowSerializer<T> serializer) throws IOException {
+		long size = channel.size();
+		if (size < Integer.BYTES + FOOTER_SIZE)
+			throw new IOException("The file is not a valid table-file or it has been torn while writing.");
+		ByteBuffer header = readAt(channel, 0, Integer.BYTES);
+		ByteBuffer footer = readAt(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+		if (header.getInt(0) != MAGIC || footer.getInt(Integer.BYTES + Long.BYTES) != MAGIC)
+			throw new IOException("The file is not a valid table-file or it has been torn while writing.");
+		int count = footer.getInt(0);
+		long checksum = footer.getLong(Integer.BYTES);
+		long length = size - Integer.BYTES - FOOTER_SIZE;
+
+		CRC32 crc = new CRC32();
+		new CheckedInputStream(body(channel, length), crc).transferTo(OutputStream.nullOutputStream());
+		if (crc.getValue() != checksum)
+			throw new IOException("The checksum of the table-file doesn't match.");
+
+		DataInputStream in = new DataInputStream(body(channel, length));
+		List<T> rows = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			rows.add(serializer.read(in));
+		return rows;
+	}
+
+	private static ByteBuffer readAt(final FileChannel channel, final long position, final int length)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position + buffer.position()) == -1)
+				throw new EOFException();
+		return buffer;
+	}
+
+	/**
+	 * Gets a stream over the rows, which ends at the footer. Not closed by its
+	 * callers, since closing it would close the channel.
+	 */
+	private static InputStream body(final FileChannel channel, final long length) throws IOException {
+		channel.position(Integer.BYTES);
+		return new BoundedInputStream(new BufferedInputStream(Channels.newInputStream(channel)), length);
+	}
+
+	private static class BoundedInputStream extends InputStream {
+
+		private final InputStream in;
+		private long remaining;
+
+		BoundedInputStream(final InputStream in, final long length) {
+			this.in = in;
+			remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining == 0)
+				return -1;
+			int b = in.read();
+			if (b != -1)
+				remaining--;
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+			if (length == 0)
+				return 0;
+			if (remaining == 0)
+				return -1;
+			int n = in.read(bytes, offset, (int) Math.min(length, remaining));
+			if (n > 0)
+				remaining -= n;
+			return n;
+		}
+	}
+}
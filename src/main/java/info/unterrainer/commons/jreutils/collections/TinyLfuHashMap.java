@@ -0,0 +1,253 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A size-limited hash-map evicting in the spirit of W-TinyLFU.
+ * <p>
+ * New entries enter a small LRU window (1% of the size). Entries leaving the
+ * window have to compete with the least recently used entry of the main part
+ * and only get in, if they have been used more often recently, according to a
+ * {@link FrequencySketch}. The main part is a segmented LRU, where entries hit
+ * a second time are promoted from a probation to a protected segment (80% of
+ * the main part).<br>
+ * That way one-off accesses, like a large scan, can't flush out the frequently
+ * used entries.
+ * <p>
+ * Permits a null key, like {@link HashMap}. Not thread-safe; use it through a
+ * {@link DataMap}.
+ */
+public class TinyLfuHashMap<K, V> extends AbstractMap<K, V> {
+
+	private static final int WINDOW = 0;
+	private static final int PROBATION = 1;
+	private static final int PROTECTED = 2;
+
+	private final int maxSize;
+	private final int maxWindow;
+	private final int maxMain;
+	private final int maxProtected;
+	private final HashMap<Object, Node<K, V>> data = new HashMap<>();
+	private final FrequencySketch sketch;
+	private final NodeQueue<K, V> window = new NodeQueue<>();
+	private final NodeQueue<K, V> probation = new NodeQueue<>();
+	private final NodeQueue<K, V> protectedQueue = new NodeQueue<>();
+
+	public TinyLfuHashMap(final int maxSize) {
+		if (maxSize <= 0 || maxSize == Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The size must be greater than 0 and bounded.");
+		this.maxSize = maxSize;
+		maxWindow = Math.max(1, maxSize / 100);
+		maxMain = maxSize - maxWindow;
+		maxProtected = maxMain * 8 / 10;
+		sketch = new FrequencySketch(maxSize);
+	}
+
+	public TinyLfuHashMap(final EvictionPolicy<K, V> policy) {
+		this(policy.getMaxSize());
+		if (policy.getWeigher() != null || policy.getExpireAfterWrite() != null
+				|| policy.getExpireAfterAccess() != null || policy.getRefreshAfterWrite() != null)
+			throw new IllegalArgumentException("A tinyLfu policy only supports a maxSize.");
+	}
+
+	@Override
+	public int size() {
+		return data.size();
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return data.containsKey(key);
+	}
+
+	@Override
+	public V get(final Object key) {
+		sketch.increment(key);
+		Node<K, V> node = data.get(key);
+		if (node == null)
+			return null;
+		onHit(node);
+		return node.getValue();
+	}
+
+	@Override
+	public V put(final K key, final V value) {
+		sketch.increment(key);
+		Node<K, V> node = data.get(key);
+		if (node != null) {
+			V old = node.setValue(value);
+			onHit(node);
+			return old;
+		}
+		node = new Node<>(key, value);
+		data.put(key, node);
+		window.addLast(node, WINDOW);
+		if (window.size > maxWindow)
+			admit(window.head);
+		return null;
+	}
+
+	@Override
+	public V remove(final Object key) {
+		Node<K, V> node = data.remove(key);
+		if (node == null)
+			return null;
+		queueOf(node).unlink(node);
+		return node.getValue();
+	}
+
+	@Override
+	public void clear() {
+		data.clear();
+		window.clear();
+		probation.clear();
+		protectedQueue.clear();
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		return new AbstractSet<>() {
+
+			@Override
+			public int size() {
+				return data.size();
+			}
+
+			@Override
+			public Iterator<Entry<K, V>> iterator() {
+				Iterator<Node<K, V>> it = data.values().iterator();
+				return new Iterator<>() {
+					private Node<K, V> current;
+
+					@Override
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					@Override
+					public Entry<K, V> next() {
+						current = it.next();
+						return current;
+					}
+
+					@Override
+					public void remove() {
+						it.remove();
+						queueOf(current).unlink(current);
+					}
+				};
+			}
+		};
+	}
+
+	private void onHit(final Node<K, V> node) {
+		if (node.queue == PROBATION) {
+			probation.unlink(node);
+			protectedQueue.addLast(node, PROTECTED);
+			if (protectedQueue.size > maxProtected) {
+				Node<K, V> demoted = protectedQueue.head;
+				protectedQueue.unlink(demoted);
+				probation.addLast(demoted, PROBATION);
+			}
+		} else
+			queueOf(node).moveToTail(node);
+	}
+
+	/**
+	 * Moves the candidate from the window to the main part, if there is room or
+	 * it is used more often than the main part's victim. Evicts the loser.
+	 */
+	private void admit(final Node<K, V> candidate) {
+		window.unlink(candidate);
+		if (probation.size + protectedQueue.size < maxMain) {
+			probation.addLast(candidate, PROBATION);
+			return;
+		}
+		Node<K, V> victim = probation.head != null ? probation.head : protectedQueue.head;
+		if (victim == null || sketch.frequency(candidate.getKey()) <= sketch.frequency(victim.getKey())) {
+			data.remove(candidate.getKey());
+			return;
+		}
+		queueOf(victim).unlink(victim);
+		data.remove(victim.getKey());
+		probation.addLast(candidate, PROBATION);
+	}
+
+	private NodeQueue<K, V> queueOf(final Node<K, V> node) {
+		switch (node.queue) {
+		case WINDOW:
+			return window;
+		case PROBATION:
+			return probation;
+		default:
+			return protectedQueue;
+		}
+	}
+
+	private static class Node<K, V> extends SimpleEntry<K, V> {
+		private static final long serialVersionUID = 1L;
+
+		private int queue;
+		private Node<K, V> prev;
+		private Node<K, V> next;
+
+		Node(final K key, final V value) {
+			super(key, value);
+		}
+	}
+
+	/**
+	 * An intrusive doubly-linked LRU list; the head is the least recently used
+	 * node.
+	 */
+	private static class NodeQueue<K, V> {
+		private Node<K, V> head;
+		private Node<K, V> tail;
+		private int size;
+
+		void addLast(final Node<K, V> node, final int queue) {
+			node.queue = queue;
+			node.prev = tail;
+			node.next = null;
+			if (tail == null)
+				head = node;
+			else
+				tail.next = node;
+			tail = node;
+			size++;
+		}
+
+		void unlink(final Node<K, V> node) {
+			if (node.prev == null)
+				head = node.next;
+			else
+				node.prev.next = node.next;
+			if (node.next == null)
+				tail = node.prev;
+			else
+				node.next.prev = node.prev;
+			node.prev = null;
+			node.next = null;
+			size--;
+		}
+
+		void moveToTail(final Node<K, V> node) {
+			if (node == tail)
+				return;
+			int queue = node.queue;
+			unlink(node);
+			addLast(node, queue);
+		}
+
+		void clear() {
+			head = null;
+			tail = null;
+			size = 0;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * An index referencing a single element per key.
+ * <p>
+ * Keeps the insertion-order of its keys. It doesn't limit its size on its own,
+ * but is bounded by the queue of the table, that drops evicted elements from
+ * every index.
+ */
+class UniqueIndex<T> extends DataIndex<T> {
+
+	private final Function<T, Object> keySupplier;
+	LinkedHashMap<Object, T> map;
+
+	UniqueIndex(final String name, final Function<T, Object> keySupplier, final Function<T, Boolean> filter,
+			final int maxEntries) {
+		super(name, filter);
+		this.keySupplier = keySupplier;
+		map = new LinkedHashMap<>(maxEntries);
+	}
+
+	T get(final Object key) {
+		return map.get(key);
+	}
+
+	@Override
+	void put(final T element) {
+		if (accepts(element))
+			map.put(keySupplier.apply(element), element);
+	}
+
+	@Override
+	boolean remove(final T element) {
+		Object key = keySupplier.apply(element);
+		// Compare by identity, like the other indexes; a newer, equal element may
+		// have replaced it under the same key.
+		if (map.get(key) != element)
+			return false;
+		map.remove(key);
+		return true;
+	}
+
+	@Override
+	void clear() {
+		map.clear();
+	}
+
+	@Override
+	void rebuild(final List<T> rows) {
+		map = new LinkedHashMap<>(capacityFor(rows.size()));
+		for (T row : rows)
+			put(row);
+	}
+
+	@Override
+	IntConsumer prepare(final List<T> elements) {
+		Object[] keys = new Object[elements.size()];
+		for (int i = 0; i < keys.length; i++) {
+			T element = elements.get(i);
+			keys[i] = accepts(element) ? keySupplier.apply(element) : SKIPPED;
+		}
+		return from -> {
+			for (int i = from; i < keys.length; i++)
+				if (keys[i] != SKIPPED)
+					map.put(keys[i], elements.get(i));
+		};
+	}
+}
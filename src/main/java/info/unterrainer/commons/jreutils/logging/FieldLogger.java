@@ -1,42 +1,230 @@
 package info.unterrainer.commons.jreutils.logging;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
 
+import org.slf4j.Logger;
+
+import info.unterrainer.commons.jreutils.FieldPath;
 import info.unterrainer.commons.jreutils.Reflecting;
 import lombok.experimental.UtilityClass;
 
+/**
+ * Logs the fields annotated with {@link LogField} of an instance, one line per
+ * field ('path: value').
+ * <p>
+ * The paths of a class are scanned and compiled once. Afterwards logging an
+ * instance writes straight into the given {@link Appendable} without
+ * collecting anything in between. Primitive arrays are written without boxing
+ * their elements.
+ */
 @UtilityClass
 public class FieldLogger {
 
+	private static final String SEPARATOR = ", ";
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	private static final ClassValue<Entry[]> PLANS = new ClassValue<>() {
+		@Override
+		protected Entry[] computeValue(final Class<?> type) {
+			List<String> paths = Reflecting.getPathsOf(type, LogField.class);
+			Entry[] plan = new Entry[paths.size()];
+			for (int i = 0; i < plan.length; i++)
+				plan[i] = new Entry(Reflecting.compilePath(type, paths.get(i), LogField.class));
+			return plan;
+		}
+	};
+
+	private static final class Entry {
+
+		private final FieldPath path;
+		private final String prefix;
+
+		Entry(final FieldPath path) {
+			this.path = path;
+			prefix = path.path() + ": ";
+		}
+	}
+
 	public static String log(final Object instance, final Class<?> clazz) {
-		List<String> paths = Reflecting.getPathsOf(clazz, LogField.class);
 		StringBuilder sb = new StringBuilder();
-		for (String path : paths) {
+		log(instance, clazz, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the annotated fields of the given instance to the given
+	 * {@link StringBuilder}.
+	 *
+	 * @param instance the instance to log
+	 * @param clazz    the class to scan for annotated fields
+	 * @param sb       the builder to append to
+	 * @return the given builder
+	 */
+	public static StringBuilder log(final Object instance, final Class<?> clazz, final StringBuilder sb) {
+		try {
+			log(instance, clazz, (Appendable) sb);
+		} catch (IOException e) {
+			// A StringBuilder doesn't throw.
+			throw new UncheckedIOException(e);
+		}
+		return sb;
+	}
+
+	/**
+	 * Writes the annotated fields of the given instance to the given
+	 * {@link Appendable}.
+	 *
+	 * @param instance the instance to log
+	 * @param clazz    the class to scan for annotated fields
+	 * @param out      the appendable to write to
+	 * @throws IOException if the appendable throws one
+	 */
+	public static void log(final Object instance, final Class<?> clazz, final Appendable out) throws IOException {
+		for (Entry entry : PLANS.get(clazz)) {
+			Object value;
 			try {
-				Object o = Reflecting.getFieldByPath(path, instance, LogField.class);
-				sb.append(path);
-				sb.append(": ");
-				if (o == null)
-					sb.append("null");
-				else if (o instanceof List) {
-					String s = ((List<?>) o).stream().map(Object::toString).collect(Collectors.joining(", "));
-					sb.append("[");
-					sb.append(s);
-					sb.append("]");
-				} else if (o.getClass().isArray()) {
-					String s = Arrays.stream((Object[]) o).map(Object::toString).collect(Collectors.joining(", "));
-					sb.append("[");
-					sb.append(s);
-					sb.append("]");
-				} else
-					sb.append(o.toString());
-				sb.append(System.lineSeparator());
-			} catch (IllegalArgumentException | IllegalAccessException e) {
-				// NOOP
+				value = entry.path.get(instance);
+			} catch (IllegalArgumentException e) {
+				continue;
 			}
+			out.append(entry.prefix);
+			appendValue(out, value);
+			out.append(LINE_SEPARATOR);
 		}
-		return sb.toString();
+	}
+
+	/**
+	 * Passes the path and the value of every annotated field of the given instance
+	 * to the given sink instead of formatting them. Lists and arrays are passed as
+	 * they are.
+	 *
+	 * @param instance the instance to log
+	 * @param clazz    the class to scan for annotated fields
+	 * @param sink     the consumer of the paths and values
+	 */
+	public static void log(final Object instance, final Class<?> clazz, final BiConsumer<String, Object> sink) {
+		for (Entry entry : PLANS.get(clazz)) {
+			Object value;
+			try {
+				value = entry.path.get(instance);
+			} catch (IllegalArgumentException e) {
+				continue;
+			}
+			sink.accept(entry.path.path(), value);
+		}
+	}
+
+	/**
+	 * Logs the annotated fields of the given instance at level TRACE. Doesn't do
+	 * anything, if that level is disabled.
+	 *
+	 * @param logger   the logger to log to
+	 * @param instance the instance to log
+	 * @param clazz    the class to scan for annotated fields
+	 */
+	public static void trace(final Logger logger, final Object instance, final Class<?> clazz) {
+		if (logger.isTraceEnabled())
+			logger.trace(log(instance, clazz));
+	}
+
+	/**
+	 * Logs the annotated fields of the given instance at level DEBUG. Doesn't do
+	 * anything, if that level is disabled.
+	 *
+	 * @param logger   the logger to log to
+	 * @param instance the instance to log
+	 * @param clazz    the class to scan for annotated fields
+	 */
+	public static void debug(final Logger logger, final Object instance, final Class<?> clazz) {
+		if (logger.isDebugEnabled())
+			logger.debug(log(instance, clazz));
+	}
+
+	/**
+	 * Logs the annotated fields of the given instance at level INFO. Doesn't do
+	 * anything, if that level is disabled.
+	 *
+	 * @param logger   the logger to log to
+	 * @param instance the instance to log
+	 * @param clazz    the class to scan for annotated fields
+	 */
+	public static void info(final Logger logger, final Object instance, final Class<?> clazz) {
+		if (logger.isInfoEnabled())
+			logger.info(log(instance, clazz));
+	}
+
+	private static void appendValue(final Appendable out, final Object value) throws IOException {
+		if (value == null)
+			out.append("null");
+		else if (value instanceof CharSequence)
+			out.append((CharSequence) value);
+		else if (value instanceof List) {
+			out.append('[');
+			boolean first = true;
+			for (Object element : (List<?>) value) {
+				if (!first)
+					out.append(SEPARATOR);
+				out.append(String.valueOf(element));
+				first = false;
+			}
+			out.append(']');
+		} else if (value.getClass().isArray())
+			appendArray(out, value);
+		else
+			out.append(value.toString());
+	}
+
+	private static void appendArray(final Appendable out, final Object array) throws IOException {
+		Class<?> type = array.getClass().getComponentType();
+		int length = Array.getLength(array);
+		out.append('[');
+		for (int i = 0; i < length; i++) {
+			if (i > 0)
+				out.append(SEPARATOR);
+			if (!type.isPrimitive())
+				out.append(String.valueOf(((Object[]) array)[i]));
+			else if (type == int.class)
+				appendLong(out, ((int[]) array)[i]);
+			else if (type == long.class)
+				appendLong(out, ((long[]) array)[i]);
+			else if (type == short.class)
+				appendLong(out, ((short[]) array)[i]);
+			else if (type == byte.class)
+				appendLong(out, ((byte[]) array)[i]);
+			else if (type == char.class)
+				out.append(((char[]) array)[i]);
+			else if (type == boolean.class)
+				out.append(((boolean[]) array)[i] ? "true" : "false");
+			else if (type == double.class)
+				appendDouble(out, ((double[]) array)[i]);
+			else
+				appendFloat(out, ((float[]) array)[i]);
+		}
+		out.append(']');
+	}
+
+	private static void appendLong(final Appendable out, final long value) throws IOException {
+		if (out instanceof StringBuilder)
+			((StringBuilder) out).append(value);
+		else
+			out.append(Long.toString(value));
+	}
+
+	private static void appendDouble(final Appendable out, final double value) throws IOException {
+		if (out instanceof StringBuilder)
+			((StringBuilder) out).append(value);
+		else
+			out.append(Double.toString(value));
+	}
+
+	private static void appendFloat(final Appendable out, final float value) throws IOException {
+		if (out instanceof StringBuilder)
+			((StringBuilder) out).append(value);
+		else
+			out.append(Float.toString(value));
 	}
 }
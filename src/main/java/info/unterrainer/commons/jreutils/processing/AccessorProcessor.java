@@ -0,0 +1,236 @@
+package info.unterrainer.commons.jreutils.processing;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import info.unterrainer.commons.jreutils.GeneratedAccessors;
+
+/**
+ * Generates {@link GeneratedAccessors} for every class declaring fields that
+ * are annotated with one of the scanned annotations, and registers them as
+ * services.
+ * <p>
+ * The annotations default to {@code LogField}. Pass a comma-separated list of
+ * fully qualified names using the option {@value #ANNOTATIONS_OPTION} (like
+ * {@code -Ajreutils.annotations=com.acme.Audited,com.acme.Exported}) to
+ * process others.
+ * <p>
+ * Generated code reads fields that aren't private directly and private fields
+ * through a {@link java.lang.invoke.VarHandle} obtained using
+ * {@link java.lang.invoke.MethodHandles#privateLookupIn}, which works since
+ * the generated class lives in the package of the scanned one. Getters aren't
+ * called, since they might return something else than the field itself.
+ * <p>
+ * The service file is merged with the one of a previous compilation, so an
+ * incremental build keeps the registrations of classes it didn't recompile.
+ * <p>
+ * The processor isn't registered as a service itself, so it only runs, if you
+ * ask your compiler to (for example using {@code -processor} or the
+ * {@code annotationProcessorPaths} of the maven-compiler-plugin).
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions(AccessorProcessor.ANNOTATIONS_OPTION)
+public class AccessorProcessor extends AbstractProcessor {
+
+	public static final String ANNOTATIONS_OPTION = "jreutils.annotations";
+	public static final String SUFFIX = "Accessors";
+
+	private static final String DEFAULT_ANNOTATIONS = "info.unterrainer.commons.jreutils.logging.LogField";
+	private static final String SERVICE_FILE = "META-INF/services/" + GeneratedAccessors.class.getName();
+
+	private final Set<String> generated = new LinkedHashSet<>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+		String option = processingEnv.getOptions().getOrDefault(ANNOTATIONS_OPTION, DEFAULT_ANNOTATIONS);
+		for (String name : option.split(",")) {
+			TypeElement annotation = processingEnv.getElementUtils().getTypeElement(name.trim());
+			if (annotation == null)
+				continue;
+			Set<TypeElement> types = new LinkedHashSet<>();
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation))
+				if (element.getKind() == ElementKind.FIELD)
+					types.add((TypeElement) element.getEnclosingElement());
+			for (TypeElement type : types)
+				if (isReferable(type))
+					generate(type, annotation);
+		}
+		if (roundEnv.processingOver() && !generated.isEmpty())
+			writeServiceFile();
+		return false;
+	}
+
+	private boolean isReferable(final TypeElement type) {
+		for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+			TypeElement t = (TypeElement) e;
+			if (t.getModifiers().contains(Modifier.PRIVATE) || t.getNestingKind() == NestingKind.LOCAL
+					|| t.getNestingKind() == NestingKind.ANONYMOUS)
+				return false;
+		}
+		return true;
+	}
+
+	private void generate(final TypeElement type, final TypeElement annotation) {
+		String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		String typeName = erasure(type.asType());
+		String simpleName = typeName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1).replace('.',
+				'_') + "_" + annotation.getSimpleName() + SUFFIX;
+		String className = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+		List<String> fields = new ArrayList<>();
+		List<String> handles = new ArrayList<>();
+		for (Element element : type.getEnclosedElements())
+			if (element.getKind() == ElementKind.FIELD && isAnnotated(element, annotation))
+				fields.add(field(typeName, (VariableElement) element, handles));
+
+		StringBuilder sb = new StringBuilder();
+		if (!packageName.isEmpty())
+			sb.append("package ").append(packageName).append(";\n\n");
+		sb.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n");
+		sb.append("@SuppressWarnings({ \"rawtypes\", \"unchecked\" })\n");
+		sb.append("public final class ").append(simpleName).append(" implements ")
+				.append(GeneratedAccessors.class.getName()).append(" {\n\n");
+		if (!handles.isEmpty()) {
+			// The handles have to be initialized before FIELDS.
+			for (int i = 0; i < handles.size(); i++)
+				sb.append("\tprivate static final java.lang.invoke.VarHandle HANDLE_").append(i).append(";\n");
+			sb.append("\n\tstatic {\n\t\ttry {\n");
+			sb.append("\t\t\tjava.lang.invoke.MethodHandles.Lookup lookup = java.lang.invoke.MethodHandles.privateLookupIn(")
+					.append(typeName).append(".class, java.lang.invoke.MethodHandles.lookup());\n");
+			for (int i = 0; i < handles.size(); i++)
+				sb.append("\t\t\tHANDLE_").append(i).append(" = ").append(handles.get(i)).append(";\n");
+			sb.append("\t\t} catch (ReflectiveOperationException e) {\n")
+					.append("\t\t\tthrow new ExceptionInInitializerError(e);\n\t\t}\n\t}\n\n");
+		}
+		sb.append("\tprivate static final java.util.List<info.unterrainer.commons.jreutils.GeneratedField> FIELDS = java.util.List.of(");
+		sb.append(String.join(",", fields));
+		sb.append(");\n\n");
+		sb.append("\t@Override\n\tpublic Class<?> type() {\n\t\treturn ").append(typeName).append(".class;\n\t}\n\n");
+		sb.append("\t@Override\n\tpublic Class<? extends java.lang.annotation.Annotation> annotation() {\n\t\treturn ")
+				.append(annotation.getQualifiedName()).append(".class;\n\t}\n\n");
+		sb.append("\t@Override\n\tpublic java.util.List<info.unterrainer.commons.jreutils.GeneratedField> fields() {\n")
+				.append("\t\treturn FIELDS;\n\t}\n}\n");
+
+		try (Writer writer = processingEnv.getFiler().createSourceFile(className, type).openWriter()) {
+			writer.write(sb.toString());
+			generated.add(className);
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					String.format("Couldn't generate [%s]: %s", className, e.getMessage()), type);
+		}
+	}
+
+	private boolean isAnnotated(final Element element, final TypeElement annotation) {
+		return element.getAnnotationMirrors()
+				.stream()
+				.anyMatch(m -> m.getAnnotationType().asElement().equals(annotation));
+	}
+
+	/**
+	 * Generates the construction of the {@link info.unterrainer.commons.jreutils.GeneratedField}
+	 * of the given field. Adds the expression looking up its
+	 * {@link java.lang.invoke.VarHandle} to the given list, if it's private.
+	 */
+	private String field(final String typeName, final VariableElement field, final List<String> handles) {
+		String name = field.getSimpleName().toString();
+		TypeMirror fieldType = field.asType();
+		boolean isStatic = field.getModifiers().contains(Modifier.STATIC);
+		String getter;
+		if (!field.getModifiers().contains(Modifier.PRIVATE))
+			getter = isStatic ? "o -> " + typeName + "." + name : "o -> ((" + typeName + ") o)." + name;
+		else {
+			String handle = "HANDLE_" + handles.size();
+			handles.add(String.format("lookup.%s(%s.class, \"%s\", %s.class)",
+					isStatic ? "findStaticVarHandle" : "findVarHandle", typeName, name, erasure(fieldType)));
+			getter = isStatic ? "o -> " + handle + ".get()" : "o -> " + handle + ".get((" + typeName + ") o)";
+		}
+		return String.format("\n\t\t\tnew info.unterrainer.commons.jreutils.GeneratedField(\"%s\", %s.class, %s.class, %s)",
+				name, erasure(fieldType), erasure(elementTypeOf(fieldType)), getter);
+	}
+
+	private TypeMirror elementTypeOf(final TypeMirror type) {
+		if (type.getKind() == TypeKind.ARRAY)
+			return ((ArrayType) type).getComponentType();
+		TypeMirror list = processingEnv.getTypeUtils()
+				.erasure(processingEnv.getElementUtils().getTypeElement(List.class.getName()).asType());
+		if (type.getKind() == TypeKind.DECLARED && processingEnv.getTypeUtils().isAssignable(
+				processingEnv.getTypeUtils().erasure(type), list)) {
+			List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+			if (arguments.size() == 1 && arguments.get(0).getKind() == TypeKind.DECLARED)
+				return arguments.get(0);
+			return processingEnv.getElementUtils().getTypeElement(Object.class.getName()).asType();
+		}
+		return type;
+	}
+
+	private String erasure(final TypeMirror type) {
+		return processingEnv.getTypeUtils().erasure(type).toString();
+	}
+
+	private void writeServiceFile() {
+		Set<String> entries = new LinkedHashSet<>(existingServiceEntries());
+		entries.addAll(generated);
+		try {
+			FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			try (Writer writer = file.openWriter()) {
+				for (String className : entries)
+					writer.write(className + "\n");
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					String.format("Couldn't write [%s]: %s", SERVICE_FILE, e.getMessage()));
+		}
+	}
+
+	/**
+	 * Reads the service file of a previous compilation, if there is one. Entries
+	 * whose class doesn't exist any more are dropped.
+	 */
+	private List<String> existingServiceEntries() {
+		List<String> entries = new ArrayList<>();
+		try {
+			FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			try (BufferedReader reader = new BufferedReader(file.openReader(true))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String className = line.trim();
+					if (!className.isEmpty() && !className.startsWith("#")
+							&& processingEnv.getElementUtils().getTypeElement(className) != null)
+						entries.add(className);
+				}
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			// There is no previous service file.
+		}
+		return entries;
+	}
+}
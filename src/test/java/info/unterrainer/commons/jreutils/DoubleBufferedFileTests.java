@@ -4,6 +4,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIOException;
 
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 
@@ -107,4 +109,20 @@ public class DoubleBufferedFileTests {
 			dbf.delete();
 		}
 	}
+
+	@Test
+	public void binaryReadsStreamTheNewerAndTheOlderFile() throws IOException {
+		DoubleBufferedFile dbf = new DoubleBufferedFile(Path.of("new"), "bin");
+		try {
+			dbf.writeBinary(out -> out.write(new byte[] { 1, 2, 3 }));
+			dbf.writeBinary(out -> out.write(new byte[] { 4, 5 }));
+			assertThat(dbf.readBinary(channel -> Channels.newInputStream(channel).readAllBytes()))
+					.containsExactly((byte) 4, (byte) 5);
+			assertThat(dbf.readOtherBinary(channel -> Channels.newInputStream(channel).readAllBytes()))
+					.containsExactly((byte) 1, (byte) 2, (byte) 3);
+			assertThat(dbf.readBinary(FileChannel::size)).isEqualTo(2);
+		} finally {
+			dbf.delete();
+		}
+	}
 }
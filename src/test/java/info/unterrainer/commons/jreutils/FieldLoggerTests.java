@@ -1,8 +1,20 @@
 package info.unterrainer.commons.jreutils;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
 
 import info.unterrainer.commons.jreutils.dtos.Test1Class;
+import info.unterrainer.commons.jreutils.dtos.Test5LogClass;
 import info.unterrainer.commons.jreutils.logging.FieldLogger;
 
 public class FieldLoggerTests {
@@ -35,4 +47,40 @@ public class FieldLoggerTests {
 		sb.append(System.lineSeparator());
 		System.out.println(sb.toString());
 	}
+
+	private static final String N = System.lineSeparator();
+
+	@Test
+	public void TestWritingPrimitiveArrays() throws IOException {
+		String expected = "name: name" + N + "ints: [1, 2, 3]" + N + "doubles: [0.5]" + N + "floats: [0.1]" + N
+				+ "chars: [a, b]" + N + "strings: [x, y]" + N;
+		assertThat(FieldLogger.log(new Test5LogClass(), Test5LogClass.class)).isEqualTo(expected);
+		StringWriter writer = new StringWriter();
+		FieldLogger.log(new Test5LogClass(), Test5LogClass.class, writer);
+		assertThat(writer.toString()).isEqualTo(expected);
+	}
+
+	@Test
+	public void TestWritingToSink() {
+		Test5LogClass t = new Test5LogClass();
+		Map<String, Object> values = new LinkedHashMap<>();
+		FieldLogger.log(t, Test5LogClass.class, values::put);
+		assertThat(values.keySet()).containsExactly("name", "ints", "doubles", "floats", "chars", "strings");
+		assertThat(values.get("ints")).isSameAs(t.getInts());
+	}
+
+	@Test
+	public void TestDisabledLevelSkipsAllWork() {
+		List<String> calls = new ArrayList<>();
+		Logger logger = (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[] { Logger.class },
+				(proxy, method, args) -> {
+					calls.add(method.getName());
+					if (method.getName().equals("isInfoEnabled"))
+						return true;
+					return method.getReturnType() == boolean.class ? false : null;
+				});
+		FieldLogger.debug(logger, null, Test5LogClass.class);
+		FieldLogger.info(logger, new Test5LogClass(), Test5LogClass.class);
+		assertThat(calls).containsExactly("isDebugEnabled", "isInfoEnabled", "info");
+	}
 }
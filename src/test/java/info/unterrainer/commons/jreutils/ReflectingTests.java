@@ -1,16 +1,27 @@
 package info.unterrainer.commons.jreutils;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 
 import info.unterrainer.commons.jreutils.dtos.ContainsMyType;
 import info.unterrainer.commons.jreutils.dtos.MyType;
 import info.unterrainer.commons.jreutils.dtos.Test1Class;
+import info.unterrainer.commons.jreutils.dtos.Test2Class;
 import info.unterrainer.commons.jreutils.dtos.Test2SubClass;
 import info.unterrainer.commons.jreutils.dtos.Test3SubSubClass;
+import info.unterrainer.commons.jreutils.dtos.Test4CyclicClass;
+import info.unterrainer.commons.jreutils.logging.LogField;
 
 public class ReflectingTests {
 
@@ -178,4 +189,171 @@ public class ReflectingTests {
 		mt.setName("blubb");
 		assertThat(tc.getMySubSubType().getName()).isEqualTo("blubb");
 	}
+
+	@Test
+	public void TestCachedPathsResolveLikeTheParser() throws IllegalArgumentException, IllegalAccessException {
+		Test1Class tc = new Test1Class();
+		List<String> paths = new ArrayList<>(Reflecting.getPathsOf(Test1Class.class, ContainsMyType.class));
+		paths.addAll(List.of("myTypeList:2", "myTypeArray:-1", "usedClassList:1.myType", "usedClassArray:5.myType",
+				"notThere", "className"));
+		for (String path : paths) {
+			Object expected = new FieldParser(path, tc, ContainsMyType.class).parse();
+			Object actual = Reflecting.getFieldByPath(path, tc, ContainsMyType.class);
+			assertThat(actual).isSameAs(expected);
+		}
+	}
+
+	@Test
+	public void TestReadingFieldsOfSubSubClassScansEachSuperClassOnceTopMostFirst() {
+		List<String> results = Reflecting.getPathsOf(Test3SubSubClass.class, MyType.class, ContainsMyType.class);
+		assertThat(results).containsExactly("mySuperType", "mySubType", "mySubSubType");
+	}
+
+	@Test
+	public void TestReadingFieldsIsCachedAndImmutable() {
+		List<String> results = Reflecting.getPathsOf(Test1Class.class, MyType.class, ContainsMyType.class);
+		assertThat(Reflecting.getPathsOf(Test1Class.class, MyType.class, ContainsMyType.class)).isSameAs(results);
+		assertThrows(UnsupportedOperationException.class, () -> results.add("blubb"));
+	}
+
+	@Test
+	public void TestReadingFieldsOfCyclicClassesTerminates() {
+		List<String> results = Reflecting.getPathsOf(Test4CyclicClass.class, MyType.class, ContainsMyType.class);
+		assertThat(results).containsExactly("myType");
+	}
+
+	private List<Test1Class> batch(final int size) {
+		List<Test1Class> batch = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			Test1Class tc = new Test1Class();
+			tc.setName("name" + i);
+			tc.setType((long) i);
+			batch.add(tc);
+		}
+		return batch;
+	}
+
+	@Test
+	public void TestReadingFieldsByPathsColumnWise() {
+		List<Test1Class> batch = batch(3);
+		Object[][] columns = Reflecting.getFieldsByPaths(Test1Class.class, List.of("name", "type", "myTypeArray:1"),
+				batch, LogField.class);
+		assertThat(columns.length).isEqualTo(3);
+		assertThat(columns[0]).containsExactly("name0", "name1", "name2");
+		assertThat(columns[1]).containsExactly(0L, 1L, 2L);
+		for (int i = 0; i < batch.size(); i++)
+			assertThat(columns[2][i]).isSameAs(batch.get(i).getMyTypeArray()[1]);
+	}
+
+	@Test
+	public void TestReadingFieldsByPathsRowWise() {
+		List<Test1Class> batch = batch(3);
+		List<Object[]> rows = Reflecting
+				.getRowsByPaths(Test1Class.class, List.of("type", "name"), batch.stream(), LogField.class)
+				.collect(Collectors.toList());
+		assertThat(rows).hasSize(3);
+		assertThat(rows.get(1)).containsExactly(1L, "name1");
+		assertThat(Reflecting.getRowsByPaths(Test1Class.class, List.of("type", "name"), batch, LogField.class, true)
+				.get(2)).containsExactly(2L, "name2");
+	}
+
+	@Test
+	public void TestReadingFieldsByPathsInParallelKeepsOrder() {
+		List<Test1Class> batch = batch(10_000);
+		List<String> paths = List.of("name", "type");
+		Object[][] sequential = Reflecting.getFieldsByPaths(Test1Class.class, paths, batch, LogField.class);
+		Object[][] parallel = Reflecting.getFieldsByPaths(Test1Class.class, paths, batch, LogField.class, true);
+		Object[][] stream = Reflecting.getFieldsByPaths(Test1Class.class, paths, batch.parallelStream(),
+				LogField.class);
+		assertThat(parallel).isEqualTo(sequential);
+		assertThat(stream).isEqualTo(sequential);
+		assertThat(sequential[0][9_999]).isEqualTo("name9999");
+	}
+
+	@Test
+	public void TestReadingFieldsByPathsOfWrongInstancesThrows() {
+		assertThrows(IllegalArgumentException.class, () -> Reflecting.getFieldsByPaths(Test1Class.class,
+				List.of("name"), List.of(new Test1Class(), "blubb"), LogField.class));
+	}
+
+	@Test
+	public void TestScanningDoesntCacheAnythingOnClassesThatCantSeeTheAnnotation() throws Exception {
+		Test1Class tc = new Test1Class();
+		tc.setName("blubb");
+		Reflecting.getPathsOf(Test1Class.class, LogField.class);
+		Reflecting.getPathsOf(String.class, LogField.class);
+		Reflecting.getFieldByPath("name", tc, LogField.class);
+		Reflecting.getFieldByPath("name.notThere", tc, LogField.class);
+		assertThat(ClassMetadata.sees(Test1Class.class, LogField.class)).isTrue();
+		assertThat(ClassMetadata.sees(String.class, LogField.class)).isFalse();
+		for (Class<?> type : List.of(Object.class, String.class, Long.class))
+			for (String name : List.of("fields", "accessors", "paths", "pathsOf")) {
+				Field field = ClassMetadata.class.getDeclaredField(name);
+				field.setAccessible(true);
+				assertThat((Map<?, ?>) field.get(ClassMetadata.of(type))).isEmpty();
+			}
+	}
+
+	@Test
+	public void TestIndexedPathsAreCachedWithoutTheirIndexes() throws Exception {
+		Test1Class tc = new Test1Class();
+		for (int i = 0; i < 100; i++)
+			assertThat((Object) Reflecting.getFieldByPath("myTypeList:" + i, tc, ContainsMyType.class))
+					.isSameAs(tc.getMyTypeList().get(i % 4));
+		assertThat(Reflecting.compilePath(Test1Class.class, "myTypeList", ContainsMyType.class))
+				.isSameAs(Reflecting.compilePath(Test1Class.class, "myTypeList", ContainsMyType.class));
+		assertThat(Reflecting.compilePath(Test1Class.class, "usedClassList:2.myType", ContainsMyType.class).path())
+				.isEqualTo("usedClassList:2.myType");
+
+		Field field = ClassMetadata.class.getDeclaredField("paths");
+		field.setAccessible(true);
+		Map<?, ?> paths = (Map<?, ?>) ((Map<?, ?>) field.get(ClassMetadata.of(Test1Class.class)))
+				.get(ContainsMyType.class);
+		assertThat(paths.keySet()).doesNotContain("myTypeList:1", "usedClassList:2.myType");
+		assertThat(paths.keySet()).contains("myTypeList", "usedClassList.myType");
+	}
+
+	@Test
+	public void TestCompiledPathsDontKeepClassesTheyWereFollowedThroughAlive() throws Exception {
+		FieldPath path = Reflecting.compilePath(Test2Class.class, "mySubType", ContainsMyType.class);
+		WeakReference<Class<?>> reference = followThroughChildLoader(path);
+		for (int i = 0; i < 10 && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertThat(reference.get()).isNull();
+	}
+
+	private WeakReference<Class<?>> followThroughChildLoader(final FieldPath path) throws Exception {
+		Class<?> clazz = new ChildFirstLoader(Test2SubClass.class.getName()).loadClass(Test2SubClass.class.getName());
+		assertThat(clazz).isNotSameAs(Test2SubClass.class);
+		assertThat(path.get(clazz.getConstructor().newInstance())).isInstanceOf(MyType.class);
+		return new WeakReference<>(clazz);
+	}
+
+	/**
+	 * Defines the class with the given name itself and delegates everything else
+	 * to the class-loader of the tests.
+	 */
+	private static final class ChildFirstLoader extends ClassLoader {
+
+		private final String name;
+
+		ChildFirstLoader(final String name) {
+			super(ReflectingTests.class.getClassLoader());
+			this.name = name;
+		}
+
+		@Override
+		protected Class<?> loadClass(final String className, final boolean resolve) throws ClassNotFoundException {
+			if (!className.equals(name))
+				return super.loadClass(className, resolve);
+			try (InputStream in = getParent().getResourceAsStream(className.replace('.', '/') + ".class")) {
+				byte[] bytes = in.readAllBytes();
+				return defineClass(className, bytes, 0, bytes.length);
+			} catch (IOException e) {
+				throw new ClassNotFoundException(className, e);
+			}
+		}
+	}
 }
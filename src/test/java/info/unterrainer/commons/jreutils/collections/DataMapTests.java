@@ -0,0 +1,191 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+public class DataMapTests {
+
+	@Test
+	public void computeIfAbsentLoadsOnlyOnce() {
+		DataMap<String, Integer> map = new DataMap<>(10);
+		AtomicInteger loads = new AtomicInteger();
+		assertThat(map.computeIfAbsent("a", k -> loads.incrementAndGet())).isEqualTo(1);
+		assertThat(map.computeIfAbsent("a", k -> loads.incrementAndGet())).isEqualTo(1);
+		assertThat(map.computeIfAbsent("b", k -> null)).isNull();
+		assertThat(map.containsKey("b")).isFalse();
+		assertThat(loads.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void concurrentMissesAreCoalesced() throws InterruptedException {
+		DataMap<String, Integer> map = new DataMap<>(10);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		List<Integer> results = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				Integer value = map.computeIfAbsent("key", k -> {
+					try {
+						Thread.sleep(100);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return loads.incrementAndGet();
+				});
+				synchronized (results) {
+					results.add(value);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		start.countDown();
+		for (Thread thread : threads)
+			thread.join();
+		assertThat(loads.get()).isEqualTo(1);
+		assertThat(results).containsExactly(1, 1, 1, 1, 1, 1, 1, 1);
+	}
+
+	@Test
+	public void computeIfAbsentAsyncSharesLoad() throws Exception {
+		DataMap<String, Integer> map = new DataMap<>(10);
+		AtomicInteger loads = new AtomicInteger();
+		CompletableFuture<Integer> backend = new CompletableFuture<>();
+		CompletableFuture<Integer> first = map.computeIfAbsentAsync("a", k -> {
+			loads.incrementAndGet();
+			return backend;
+		});
+		CompletableFuture<Integer> second = map.computeIfAbsentAsync("a", k -> {
+			loads.incrementAndGet();
+			return CompletableFuture.completedFuture(-1);
+		});
+		assertThat(first.isDone()).isFalse();
+		backend.complete(42);
+		assertThat(first.get(1, TimeUnit.SECONDS)).isEqualTo(42);
+		assertThat(second.get(1, TimeUnit.SECONDS)).isEqualTo(42);
+		assertThat(map.get("a")).isEqualTo(42);
+		assertThat(loads.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void failedLoadIsNotCached() {
+		DataMap<String, Integer> map = new DataMap<>(10);
+		String message = null;
+		try {
+			map.computeIfAbsent("a", k -> {
+				throw new IllegalStateException("backend down");
+			});
+		} catch (IllegalStateException e) {
+			message = e.getMessage();
+		}
+		assertThat(message).isEqualTo("backend down");
+		assertThat(map.computeIfAbsent("a", k -> 1)).isEqualTo(1);
+	}
+
+	@Test
+	public void getAllBatchesMisses() {
+		DataMap<Integer, String> map = new DataMap<>(10);
+		map.put(1, "one");
+		List<Set<Integer>> calls = new ArrayList<>();
+		Map<Integer, String> result = map.getAll(List.of(1, 2, 3, 2), keys -> {
+			calls.add(Set.copyOf(keys));
+			Map<Integer, String> loaded = new HashMap<>();
+			for (Integer key : keys)
+				if (key != 3)
+					loaded.put(key, "v" + key);
+			return loaded;
+		});
+		assertThat(calls).hasSize(1);
+		assertThat(calls.get(0)).containsExactlyInAnyOrder(2, 3);
+		assertThat(result.get(1)).isEqualTo("one");
+		assertThat(result.get(2)).isEqualTo("v2");
+		assertThat(result.containsKey(3)).isFalse();
+		assertThat(map.get(2)).isEqualTo("v2");
+	}
+
+	@Test
+	public void entriesAreRefreshedAhead() throws Exception {
+		AtomicLong ticker = new AtomicLong();
+		DataMap<String, Integer> map = new DataMap<>(EvictionPolicy.<String, Integer>builder()
+				.expireAfterWrite(Duration.ofNanos(1000))
+				.refreshAfterWrite(Duration.ofNanos(500))
+				.ticker(ticker::get)
+				.build());
+		AtomicInteger loads = new AtomicInteger();
+		CompletableFuture<Integer> reload = new CompletableFuture<>();
+		assertThat(map.computeIfAbsentAsync("a", k -> CompletableFuture.completedFuture(loads.incrementAndGet()))
+				.get()).isEqualTo(1);
+		ticker.set(600);
+		assertThat(map.computeIfAbsentAsync("a", k -> {
+			loads.incrementAndGet();
+			return reload;
+		}).get()).isEqualTo(1);
+		assertThat(map.computeIfAbsentAsync("a", k -> {
+			loads.incrementAndGet();
+			return reload;
+		}).get()).isEqualTo(1);
+		assertThat(loads.get()).isEqualTo(2);
+		reload.complete(2);
+		assertThat(map.get("a")).isEqualTo(2);
+		ticker.set(1500);
+		assertThat(map.get("a")).isEqualTo(2);
+	}
+
+	@Test
+	public void statsAreRecorded() throws Exception {
+		StatsRecorder recorder = new StatsRecorder();
+		DataMap<String, Integer> map = new DataMap<String, Integer>(2).recordStats(recorder);
+		map.put("a", 1).put("b", 2).put("c", 3);
+		map.get("c");
+		map.get("a");
+		map.computeIfAbsent("d", k -> 4);
+		StatsSnapshot stats = map.stats();
+		assertThat(stats.puts()).isEqualTo(4);
+		assertThat(stats.evictions()).isEqualTo(2);
+		assertThat(stats.hits()).isEqualTo(1);
+		assertThat(stats.misses()).isEqualTo(2);
+		assertThat(stats.loads()).isEqualTo(1);
+		assertThat(stats.hitRate()).isEqualTo(1.0 / 3);
+
+		ObjectName name = JmxStats.register("dataMapTests", recorder);
+		try {
+			assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Puts")).isEqualTo(4L);
+		} finally {
+			JmxStats.unregister(name);
+		}
+	}
+
+	@Test
+	public void stripedStatsAreRecorded() {
+		StripedDataMap<Integer, Integer> map = new StripedDataMap<>(100, 4);
+		map.recordStats();
+		map.put(1, 1);
+		map.get(1);
+		map.get(2);
+		assertThat(map.stats().puts()).isEqualTo(1);
+		assertThat(map.stats().hits()).isEqualTo(1);
+		assertThat(map.stats().misses()).isEqualTo(1);
+	}
+}
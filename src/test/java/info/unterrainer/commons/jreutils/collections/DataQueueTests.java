@@ -0,0 +1,182 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class DataQueueTests {
+
+	@Test
+	public void offeringAndPollingWorks() {
+		DataQueue<String> q = new DataQueue<>(10);
+		q.offer("test1").offer("test2");
+		assertThat(q.size()).isEqualTo(2);
+		assertThat(q.peek()).isEqualTo("test1");
+		assertThat(q.poll()).isEqualTo("test1");
+		assertThat(q.poll()).isEqualTo("test2");
+		assertThat(q.poll()).isNull();
+		assertThat(q.peek()).isNull();
+	}
+
+	@Test
+	public void offeringToFullQueueDropsOldest() {
+		List<Integer> evicted = new ArrayList<>();
+		DataQueue<Integer> q = new DataQueue<Integer>(3000).onEviction(evicted::add);
+		for (int i = 0; i < 5000; i++)
+			q.offer(i);
+		assertThat(q.size()).isEqualTo(3000);
+		assertThat(evicted).hasSize(2000);
+		assertThat(evicted.get(1999)).isEqualTo(1999);
+		List<Integer> list = q.getListClone();
+		for (int i = 0; i < 3000; i++)
+			assertThat(list.get(i)).isEqualTo(2000 + i);
+		for (int i = 0; i < 3000; i++)
+			assertThat(q.poll()).isEqualTo(2000 + i);
+		assertThat(q.poll()).isNull();
+	}
+
+	@Test
+	public void snapshotIsNotAffectedByLaterChanges() {
+		DataQueue<Integer> q = new DataQueue<>(2000);
+		for (int i = 0; i < 1500; i++)
+			q.offer(i);
+		List<Integer> snapshot = q.snapshot();
+		for (int i = 0; i < 1000; i++)
+			q.poll();
+		for (int i = 1500; i < 3000; i++)
+			q.offer(i);
+		q.clear();
+		q.offer(-1);
+		assertThat(snapshot).hasSize(1500);
+		for (int i = 0; i < 1500; i++)
+			assertThat(snapshot.get(i)).isEqualTo(i);
+		assertThat(snapshot.toArray(new Integer[0])[1499]).isEqualTo(1499);
+		assertThat(q.snapshot()).containsExactly(-1);
+	}
+
+	@Test
+	public void evictedElementsAreNotRetained() throws InterruptedException {
+		DataQueue<Object> q = new DataQueue<>(10);
+		Object first = new Object();
+		WeakReference<Object> reference = new WeakReference<>(first);
+		q.offer(first);
+		first = null;
+		for (int i = 0; i < 10; i++)
+			q.offer(new Object());
+		assertThat(q.size()).isEqualTo(10);
+		for (int i = 0; i < 50 && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertThat(reference.get()).isNull();
+	}
+
+	@Test
+	public void gettingListCloneAndClearWorks() {
+		DataQueue<String> q = new DataQueue<>(10, new String[] { "test1", "test2" });
+		assertThat(q.getListCloneAndClear()).containsExactly("test1", "test2");
+		assertThat(q.size()).isEqualTo(0);
+		assertThat(q.getListClone()).isEmpty();
+	}
+
+	@Test
+	public void drainingToCollectionRespectsMax() {
+		DataQueue<Integer> q = new DataQueue<>(3000);
+		for (int i = 0; i < 2500; i++)
+			q.offer(i);
+		List<Integer> list = new ArrayList<>();
+		assertThat(q.drainTo(list, 2000)).isEqualTo(2000);
+		assertThat(list).hasSize(2000);
+		assertThat(list.get(1999)).isEqualTo(1999);
+		assertThat(q.drainTo(list, 2000)).isEqualTo(500);
+		assertThat(list.get(2499)).isEqualTo(2499);
+		assertThat(q.size()).isEqualTo(0);
+		assertThat(q.drainTo(list, 10)).isEqualTo(0);
+	}
+
+	@Test
+	public void drainingToBufferCopiesAcrossSegments() {
+		DataQueue<Integer> q = new DataQueue<>(5000);
+		for (int i = 0; i < 3000; i++)
+			q.offer(i);
+		q.poll();
+		List<Integer> snapshot = q.snapshot();
+		Integer[] buffer = new Integer[1500];
+		assertThat(q.drainTo(buffer)).isEqualTo(1500);
+		for (int i = 0; i < 1500; i++)
+			assertThat(buffer[i]).isEqualTo(i + 1);
+		assertThat(q.drainTo(buffer)).isEqualTo(1499);
+		assertThat(buffer[1498]).isEqualTo(2999);
+		assertThat(q.drainTo(buffer)).isEqualTo(0);
+		assertThat(q.peek()).isNull();
+		q.offer(7);
+		assertThat(q.poll()).isEqualTo(7);
+		assertThat(snapshot).hasSize(2999);
+		assertThat(snapshot.get(0)).isEqualTo(1);
+	}
+
+	@Test
+	public void takeWaitsForOffer() throws Exception {
+		DataQueue<String> q = new DataQueue<>(10);
+		CompletableFuture<String> taken = CompletableFuture.supplyAsync(() -> {
+			try {
+				return q.take();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		Thread.sleep(50);
+		assertThat(taken.isDone()).isFalse();
+		q.offer("test");
+		assertThat(taken.get(5, TimeUnit.SECONDS)).isEqualTo("test");
+		assertThat(q.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void timedPollReturnsNullWhenTimingOut() throws InterruptedException {
+		DataQueue<String> q = new DataQueue<>(10);
+		long start = System.nanoTime();
+		assertThat(q.poll(30, TimeUnit.MILLISECONDS)).isNull();
+		assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(30));
+		q.offer("test");
+		assertThat(q.poll(0, TimeUnit.MILLISECONDS)).isEqualTo("test");
+	}
+
+	@Test
+	public void timedDrainWaitsForFirstElement() throws Exception {
+		DataQueue<Integer> q = new DataQueue<>(10);
+		List<Integer> list = new ArrayList<>();
+		assertThat(q.drainTo(list, 5, 10, TimeUnit.MILLISECONDS)).isEqualTo(0);
+		CompletableFuture.runAsync(() -> {
+			for (int i = 0; i < 8; i++)
+				q.offer(i);
+		});
+		int drained = 0;
+		while (drained < 8)
+			drained += q.drainTo(list, 5, 5, TimeUnit.SECONDS);
+		assertThat(list).containsExactly(0, 1, 2, 3, 4, 5, 6, 7);
+	}
+
+	@Test
+	public void statsAreRecorded() {
+		DataQueue<Integer> q = new DataQueue<Integer>(3).recordStats();
+		for (int i = 0; i < 5; i++)
+			q.offer(i);
+		q.poll();
+		q.drainTo(new Integer[5]);
+		q.poll();
+		StatsSnapshot stats = q.stats();
+		assertThat(stats.puts()).isEqualTo(5);
+		assertThat(stats.evictions()).isEqualTo(2);
+		assertThat(stats.highWaterMark()).isEqualTo(3);
+		assertThat(stats.hits()).isEqualTo(3);
+		assertThat(stats.misses()).isEqualTo(1);
+		assertThat(new DataQueue<Integer>(3).stats()).isEqualTo(StatsSnapshot.EMPTY);
+	}
+}
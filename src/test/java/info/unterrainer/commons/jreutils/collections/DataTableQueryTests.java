@@ -0,0 +1,92 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class DataTableQueryTests {
+
+	private DataTable<String> createTable() {
+		DataTable<String> dt = new DataTable<>(String.class, 100);
+		dt.addIndex("id", e -> e.split(":")[2]);
+		dt.addLongIndex("number", e -> Long.parseLong(e.split(":")[2]));
+		dt.addMultiIndex("region", e -> e.split(":")[0]);
+		dt.addMultiIndex("status", e -> e.split(":")[1]);
+		dt.addSortedIndex("sorted", e -> Integer.parseInt(e.split(":")[2]));
+		dt.add("EU:ACTIVE:1", "EU:INACTIVE:2", "US:ACTIVE:3", "EU:ACTIVE:4", "US:INACTIVE:5", "AS:ACTIVE:6");
+		return dt;
+	}
+
+	@Test
+	public void conjunctionOfMultiIndexesWorks() {
+		DataTable<String> dt = createTable();
+		assertThat(dt.query().whereMulti("region", "EU").whereMulti("status", "ACTIVE").toList())
+				.containsExactly("EU:ACTIVE:1", "EU:ACTIVE:4");
+	}
+
+	@Test
+	public void disjunctionDoesNotReturnDuplicates() {
+		DataTable<String> dt = createTable();
+		assertThat(dt.query()
+				.whereMulti("region", "EU")
+				.whereMulti("status", "ACTIVE")
+				.or()
+				.whereMulti("status", "ACTIVE")
+				.toList()).containsExactly("EU:ACTIVE:1", "EU:ACTIVE:4", "US:ACTIVE:3", "AS:ACTIVE:6");
+	}
+
+	@Test
+	public void residualFilterAndRangeWork() {
+		DataTable<String> dt = createTable();
+		assertThat(dt.query().whereRange("sorted", 2, 6).filter(e -> e.startsWith("US")).toList())
+				.containsExactly("US:ACTIVE:3", "US:INACTIVE:5");
+		assertThat(dt.query().filter(e -> e.endsWith("6")).toList()).containsExactly("AS:ACTIVE:6");
+	}
+
+	@Test
+	public void uniqueAndLongIndexesWork() {
+		DataTable<String> dt = createTable();
+		assertThat(dt.query().where("id", "3").whereMulti("region", "US").toList()).containsExactly("US:ACTIVE:3");
+		assertThat(dt.query().whereLong("number", 3).whereMulti("region", "EU").count()).isEqualTo(0L);
+	}
+
+	@Test
+	public void resultDoesntDependOnTheDrivingIndex() {
+		DataTable<String> dt = createTable();
+		dt.multiRemove("status", "INACTIVE");
+		// Driven by the (now empty) status-index.
+		assertThat(dt.query().whereMulti("region", "EU").whereMulti("status", "INACTIVE").toList()).isEmpty();
+		// Driven by the id-index; the status-index is only checked.
+		assertThat(dt.query().where("id", "2").whereMulti("status", "INACTIVE").toList()).isEmpty();
+		assertThat(dt.query().where("id", "1").whereMulti("status", "ACTIVE").toList())
+				.containsExactly("EU:ACTIVE:1");
+		assertThat(dt.query().where("id", "4").whereRange("sorted", 3, 5).toList()).containsExactly("EU:ACTIVE:4");
+	}
+
+	@Test
+	public void mostSelectiveIndexIsChosen() {
+		DataTable<String> dt = createTable();
+		String plan = dt.query().whereMulti("status", "ACTIVE").whereMulti("region", "AS").explain();
+		assertThat(plan).startsWith("lookup multi-index [region] = AS (1 candidates)");
+		plan = dt.query().whereRange("sorted", null, null).where("id", "6").explain();
+		assertThat(plan).startsWith("lookup index [id] = 6 (1 candidates)");
+		plan = dt.query().filter(e -> true).explain();
+		assertThat(plan).startsWith("scan all rows (6 candidates)");
+	}
+
+	@Test
+	public void trailingOrIsIgnored() {
+		DataTable<String> dt = createTable();
+		assertThat(dt.query().whereMulti("region", "US").or().toList()).containsExactly("US:ACTIVE:3",
+				"US:INACTIVE:5");
+		assertThat(dt.query().whereMulti("region", "US").or().count()).isEqualTo(2L);
+		assertThat(dt.query().or().toList()).hasSize(6);
+	}
+
+	@Test
+	public void filterOnlyQueriesScanAllRows() {
+		DataTable<String> dt = createTable();
+		assertThat(dt.query().filter(e -> e.endsWith("5")).toList()).containsExactly("US:INACTIVE:5");
+		assertThat(dt.query().filter(e -> e.endsWith("5")).explain()).startsWith("scan all rows");
+	}
+}
@@ -1,9 +1,35 @@
 package info.unterrainer.commons.jreutils.collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.DoubleSummaryStatistics;
+import java.util.HashSet;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Test;
 
+import info.unterrainer.commons.jreutils.DoubleBufferedFile;
+
 public class DataTableTests {
 
 	@Test
@@ -123,4 +149,500 @@ public class DataTableTests {
 		assertThat(dt.keyList("index1")).containsExactly("item1", "item2");
 		assertThat(dt.keyList("index2")).containsExactly("other1", "other2");
 	}
+
+	@Test
+	public void concurrentReadersAndWriterKeepIndexesConsistent() throws Exception {
+		DataTable<String> dt = new DataTable<>(String.class, 100);
+		dt.addIndex("index1", e -> e);
+		dt.addMultiIndex("multi1", e -> e.substring(0, 1));
+
+		AtomicBoolean running = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> readers = new ArrayList<>();
+			for (int i = 0; i < 7; i++)
+				readers.add(executor.submit(() -> {
+					while (running.get()) {
+						String head = dt.peek();
+						if (head != null)
+							dt.get("index1", head);
+						dt.multiContainsKey("multi1", "i");
+						dt.toList();
+					}
+				}));
+			Future<?> writer = executor.submit(() -> {
+				for (int i = 0; i < 10000; i++)
+					dt.add("item" + i);
+			});
+			writer.get(30, TimeUnit.SECONDS);
+			running.set(false);
+			for (Future<?> reader : readers)
+				reader.get(30, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(dt.toList()).hasSize(100);
+		assertThat(dt.get("index1", "item9999")).isEqualTo("item9999");
+		assertThat(dt.multiGet("multi1", "i")).contains("item9999");
+	}
+
+	@Test
+	public void addingBatchWorksWithIndexes() {
+		DataTable<String> dt = new DataTable<>(String.class, 10);
+		dt.addIndex("index1", e -> e, e -> e.startsWith("item"));
+		dt.addMultiIndex("multi1", e -> e.substring(0, 1));
+		dt.addAll(List.of("item1", "other1", "item2"));
+		assertThat(dt.toList()).containsExactly("item1", "other1", "item2");
+		assertThat(dt.get("index1", "item2")).isEqualTo("item2");
+		assertThat(dt.get("index1", "other1")).isNull();
+		assertThat(dt.multiGet("multi1", "i")).containsExactly("item1", "item2");
+		assertThat(dt.multiGet("multi1", "o")).containsExactly("other1");
+	}
+
+	@Test
+	public void addingBatchInParallelWorksWithIndexes() {
+		DataTable<String> dt = new DataTable<>(String.class, 1000);
+		dt.addIndex("index1", e -> e);
+		dt.addIndex("index2", e -> e.toUpperCase());
+		dt.addMultiIndex("multi1", e -> e.length());
+		dt.addAll(IntStream.range(0, 1000).mapToObj(i -> "item" + i).collect(Collectors.toList()), true);
+		assertThat(dt.toList()).hasSize(1000);
+		assertThat(dt.get("index1", "item999")).isEqualTo("item999");
+		assertThat(dt.get("index2", "ITEM0")).isEqualTo("item0");
+		assertThat(dt.multiGet("multi1", 5)).hasSize(10);
+	}
+
+	@Test
+	public void addingStreamWorksWithIndex() {
+		DataTable<String> dt = new DataTable<>(String.class, 10);
+		dt.addIndex("index1", e -> e);
+		dt.addAll(IntStream.range(0, 3).mapToObj(i -> "item" + i));
+		assertThat(dt.toList()).containsExactly("item0", "item1", "item2");
+		assertThat(dt.keyList("index1")).containsExactly("item0", "item1", "item2");
+	}
+
+	@Test
+	public void evictingFromQueueAlsoEvictsFromAllIndexes() {
+		DataTable<String> dt = new DataTable<>(String.class, 2);
+		dt.addIndex("index1", e -> e);
+		dt.addMultiIndex("multi1", e -> e.substring(0, 1));
+		dt.add("item1", "item2", "item3");
+		assertThat(dt.toList()).containsExactly("item2", "item3");
+		assertThat(dt.get("index1", "item1")).isNull();
+		assertThat(dt.keyList("index1")).containsExactly("item2", "item3");
+		assertThat(dt.multiGet("multi1", "i")).containsExactly("item2", "item3");
+		assertThat(dt.evictions()).isEqualTo(1L);
+		assertThat(dt.evictions("index1")).isEqualTo(1L);
+		assertThat(dt.multiEvictions("multi1")).isEqualTo(1L);
+	}
+
+	@Test
+	public void evictionsOfUnknownIndexesAreRejected() {
+		DataTable<String> dt = new DataTable<>(String.class, 2);
+		dt.addMultiIndex("multi1", e -> e);
+		assertThatIllegalArgumentException().isThrownBy(() -> dt.evictions("multi1"));
+		assertThatIllegalArgumentException().isThrownBy(() -> dt.multiEvictions("index1"));
+	}
+
+	@Test
+	public void evictingKeepsNewerElementWithSameKey() {
+		DataTable<String> dt = new DataTable<>(String.class, 2);
+		dt.addIndex("index1", e -> e.substring(0, 1));
+		dt.add("a1", "a2", "b1");
+		assertThat(dt.get("index1", "a")).isEqualTo("a2");
+		assertThat(dt.evictions("index1")).isEqualTo(0L);
+	}
+
+	@Test
+	public void evictingKeepsNewerEqualElementWithSameKey() {
+		String older = new String("a1");
+		String newer = new String("a1");
+		DataTable<String> dt = new DataTable<>(String.class, 2);
+		dt.addIndex("index1", e -> e.substring(0, 1));
+		dt.add(older, newer, "b1");
+		assertThat(dt.get("index1", "a")).isSameAs(newer);
+		assertThat(dt.evictions("index1")).isEqualTo(0L);
+	}
+
+	@Test
+	public void evictionListenerIsCalled() {
+		List<String> evicted = new ArrayList<>();
+		DataTable<String> dt = new DataTable<>(String.class, 2);
+		dt.onEviction(evicted::add);
+		dt.add("item1", "item2", "item3", "item4");
+		assertThat(evicted).containsExactly("item1", "item2");
+	}
+
+	@Test
+	public void addingBatchLargerThanTableOnlyIndexesSurvivors() {
+		List<String> evicted = new ArrayList<>();
+		DataTable<String> dt = new DataTable<>(String.class, 2);
+		dt.addIndex("index1", e -> e);
+		dt.addMultiIndex("multi1", e -> e.substring(0, 1));
+		dt.onEviction(evicted::add);
+		dt.add("item0");
+		dt.addAll(List.of("item1", "item2", "item3"));
+		assertThat(dt.toList()).containsExactly("item2", "item3");
+		assertThat(dt.keyList("index1")).containsExactly("item2", "item3");
+		assertThat(dt.multiGet("multi1", "i")).containsExactly("item2", "item3");
+		assertThat(evicted).containsExactly("item0", "item1");
+	}
+
+	@Test
+	public void loadingMoreElementsThanTableOnlyIndexesSurvivors() {
+		DataTable<String> dt = new DataTable<>(String.class, 2);
+		dt.addIndex("index1", e -> e);
+		dt.load(new String[] { "item1", "item2", "item3" });
+		assertThat(dt.toList()).containsExactly("item2", "item3");
+		assertThat(dt.keyList("index1")).containsExactly("item2", "item3");
+	}
+
+	@Test
+	public void addingWorksWithLongAndIntIndex() {
+		DataTable<String> dt = new DataTable<>(String.class, 10);
+		dt.addLongIndex("long1", e -> Long.parseLong(e.substring(4)) * 10_000_000_000L);
+		dt.addIntIndex("int1", e -> Integer.parseInt(e.substring(4)), e -> !e.endsWith("2"));
+		dt.add("item1", "item2");
+		assertThat(dt.longGet("long1", 10_000_000_000L)).isEqualTo("item1");
+		assertThat(dt.longGet("long1", 20_000_000_000L)).isEqualTo("item2");
+		assertThat(dt.longGet("long1", 1L)).isNull();
+		assertThat(dt.intGet("int1", 1)).isEqualTo("item1");
+		assertThat(dt.intContainsKey("int1", 2)).isFalse();
+		dt.poll();
+		assertThat(dt.longContainsKey("long1", 10_000_000_000L)).isFalse();
+		assertThat(dt.intGet("int1", 1)).isNull();
+	}
+
+	@Test
+	public void longIndexStaysConsistentWhenEvicting() {
+		DataTable<Long> dt = new DataTable<>(Long.class, 1000);
+		dt.addLongIndex("long1", e -> e);
+		Random random = new Random(42);
+		List<Long> added = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			long value = random.nextInt(50000);
+			if (dt.longContainsKey("long1", value))
+				continue;
+			dt.add(value);
+			added.add(value);
+		}
+		List<Long> contained = dt.toList();
+		assertThat(contained).hasSize(1000);
+		for (Long value : contained)
+			assertThat(dt.longGet("long1", value)).isSameAs(value);
+		for (Long value : added.subList(0, added.size() - 1000))
+			if (!contained.contains(value))
+				assertThat(dt.longContainsKey("long1", value)).isFalse();
+		assertThat(dt.evictions("long1")).isEqualTo((long) added.size() - 1000);
+	}
+
+	@Test
+	public void rangeQueriesWorkWithSortedIndex() {
+		DataTable<String> dt = new DataTable<>(String.class, 10);
+		dt.addSortedIndex("sorted1", e -> Integer.parseInt(e.substring(4)));
+		dt.add("item5", "item1", "item3", "item9", "item7");
+		assertThat(dt.sortedRange("sorted1", 3, 7)).containsExactly("item3", "item5");
+		assertThat(dt.sortedRange("sorted1", null, null)).containsExactly("item1", "item3", "item5", "item7",
+				"item9");
+		assertThat(dt.sortedHead("sorted1", 5)).containsExactly("item1", "item3");
+		assertThat(dt.sortedTail("sorted1", 5)).containsExactly("item5", "item7", "item9");
+		assertThat(dt.sortedFirst("sorted1", 2)).containsExactly("item1", "item3");
+		assertThat(dt.sortedLast("sorted1", 2)).containsExactly("item9", "item7");
+		List<String> visited = new ArrayList<>();
+		dt.sortedForEach("sorted1", 2, 8, visited::add);
+		assertThat(visited).containsExactly("item3", "item5", "item7");
+	}
+
+	@Test
+	public void sortedIndexKeepsDuplicateKeysAndIsMaintainedOnPollAndEviction() {
+		DataTable<String> dt = new DataTable<>(String.class, 3);
+		dt.addSortedIndex("sorted1", e -> e.substring(0, 1), Comparator.reverseOrder());
+		dt.add("a1", "b1", "a2");
+		assertThat(dt.sortedRange("sorted1", null, null)).containsExactly("b1", "a1", "a2");
+		dt.poll();
+		assertThat(dt.sortedRange("sorted1", null, null)).containsExactly("b1", "a2");
+		dt.add("c1", "c2");
+		assertThat(dt.sortedRange("sorted1", null, null)).containsExactly("c1", "c2", "a2");
+		assertThat(dt.evictions("sorted1")).isEqualTo(1L);
+	}
+
+	@Test
+	public void snapshotIsNotAffectedByLaterChanges() {
+		DataTable<String> dt = new DataTable<>(String.class, 2);
+		dt.add("item1", "item2");
+		List<String> snapshot = dt.snapshot();
+		dt.add("item3");
+		dt.poll();
+		assertThat(snapshot).containsExactly("item1", "item2");
+		assertThat(dt.snapshot()).containsExactly("item3");
+		assertThat(dt.toArray()).containsExactly("item3");
+	}
+
+	private static final RowSerializer<String> STRING_SERIALIZER = new RowSerializer<>() {
+		@Override
+		public void write(final String row, final DataOutput out) throws IOException {
+			out.writeUTF(row);
+		}
+
+		@Override
+		public String read(final DataInput in) throws IOException {
+			return in.readUTF();
+		}
+	};
+
+	@Test
+	public void savingAndRestoringWorks() throws IOException {
+		DoubleBufferedFile dbf = new DoubleBufferedFile(Path.of("table"), "bin");
+		try {
+			DataTable<String> dt = new DataTable<>(String.class, 10);
+			dt.add("item1", "item2", "item3");
+			dt.save(dbf, STRING_SERIALIZER);
+
+			DataTable<String> restored = new DataTable<>(String.class, 10);
+			restored.addIndex("index1", e -> e);
+			restored.restore(dbf, STRING_SERIALIZER);
+			assertThat(restored.toList()).containsExactly("item1", "item2", "item3");
+			assertThat(restored.get("index1", "item2")).isEqualTo("item2");
+		} finally {
+			dbf.delete();
+		}
+	}
+
+	@Test
+	public void restoringFallsBackToPreviousGenerationIfNewestIsTorn() throws IOException {
+		DoubleBufferedFile dbf = new DoubleBufferedFile(Path.of("table"), "bin");
+		try {
+			DataTable<String> dt = new DataTable<>(String.class, 10);
+			dt.add("item1");
+			dt.save(dbf, STRING_SERIALIZER);
+			dt.add("item2");
+			dt.save(dbf, STRING_SERIALIZER);
+			Files.write(Path.of("table2.bin"), new byte[] { 0x44, 0x54, 0x42, 0x31, 0x00, 0x05 });
+
+			DataTable<String> restored = new DataTable<>(String.class, 10);
+			restored.restore(dbf, STRING_SERIALIZER);
+			assertThat(restored.toList()).containsExactly("item1");
+		} finally {
+			dbf.delete();
+		}
+	}
+
+	@Test
+	public void restoringFallsBackToPreviousGenerationIfNewestIsCorrupt() throws IOException {
+		DoubleBufferedFile dbf = new DoubleBufferedFile(Path.of("table"), "bin");
+		try {
+			DataTable<String> dt = new DataTable<>(String.class, 10);
+			dt.add("item1");
+			dt.save(dbf, STRING_SERIALIZER);
+			dt.add("item2");
+			dt.save(dbf, STRING_SERIALIZER);
+			byte[] bytes = Files.readAllBytes(Path.of("table2.bin"));
+			bytes[bytes.length / 2] ^= 0x01;
+			Files.write(Path.of("table2.bin"), bytes);
+
+			DataTable<String> restored = new DataTable<>(String.class, 10);
+			restored.restore(dbf, STRING_SERIALIZER);
+			assertThat(restored.toList()).containsExactly("item1");
+		} finally {
+			dbf.delete();
+		}
+	}
+
+	@Test
+	public void statsAreRecordedPerIndex() {
+		DataTable<String> dt = new DataTable<>(String.class, 3);
+		dt.addIndex("index", e -> e);
+		dt.recordStats();
+		dt.addLongIndex("length", e -> e.length());
+		assertThat(dt.stats("length").hits()).isEqualTo(0);
+		dt.add("a", "bb", "ccc", "dddd");
+		assertThat(dt.get("index", "bb")).isEqualTo("bb");
+		assertThat(dt.get("index", "a")).isNull();
+		assertThat(dt.longGet("length", 3)).isEqualTo("ccc");
+		StatsSnapshot table = dt.stats();
+		assertThat(table.puts()).isEqualTo(4);
+		assertThat(table.evictions()).isEqualTo(1);
+		assertThat(table.highWaterMark()).isEqualTo(3);
+		assertThat(table.hits()).isEqualTo(2);
+		assertThat(table.misses()).isEqualTo(1);
+		StatsSnapshot index = dt.stats("index");
+		assertThat(index.hits()).isEqualTo(1);
+		assertThat(index.misses()).isEqualTo(1);
+		assertThat(index.evictions()).isEqualTo(1);
+		assertThat(dt.stats("length").hits()).isEqualTo(1);
+	}
+
+	@Test
+	public void columnsAreAggregatedAndStayAlignedWhenEvicting() {
+		DataTable<String> dt = new DataTable<>(String.class, 3);
+		dt.add("a", "bb");
+		dt.addLongColumn("length", String::length);
+		dt.add("ccc", "dddd");
+		LongSummaryStatistics s = dt.summarizeLong("length");
+		assertThat(s.getCount()).isEqualTo(3);
+		assertThat(s.getMin()).isEqualTo(2);
+		assertThat(s.getMax()).isEqualTo(4);
+		assertThat(s.getSum()).isEqualTo(9);
+		dt.poll();
+		assertThat(dt.summarizeLong("length", v -> v > 3).getSum()).isEqualTo(4);
+		dt.clear();
+		assertThat(dt.summarizeLong("length").getCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void parallelAggregationEqualsSequentialOne() {
+		int size = 200_000;
+		DataTable<Double> dt = new DataTable<>(Double.class, size);
+		dt.addDoubleColumn("value", Double::doubleValue);
+		Random random = new Random(42);
+		List<Double> rows = new ArrayList<>();
+		for (int i = 0; i < size + 1234; i++)
+			rows.add((double) random.nextInt(1000));
+		dt.addAll(rows);
+		DoubleSummaryStatistics sequential = dt.summarizeDouble("value", v -> v < 500, false);
+		DoubleSummaryStatistics parallel = dt.summarizeDouble("value", v -> v < 500, true);
+		assertThat(parallel.getCount()).isEqualTo(sequential.getCount());
+		assertThat(parallel.getSum()).isEqualTo(sequential.getSum());
+		assertThat(parallel.getMin()).isEqualTo(0.0);
+		assertThat(parallel.getMax()).isEqualTo(499.0);
+		assertThat(sequential.getCount())
+				.isEqualTo(rows.subList(1234, rows.size()).stream().filter(v -> v < 500).count());
+	}
+
+	@Test
+	public void parallelLongAggregationEqualsSequentialOne() {
+		int size = 200_000;
+		DataTable<Long> dt = new DataTable<>(Long.class, size);
+		dt.addLongColumn("value", Long::longValue);
+		for (long i = 0; i < size + 1234; i++)
+			dt.add(i);
+		LongSummaryStatistics sequential = dt.summarizeLong("value", v -> v % 2 == 0, false);
+		LongSummaryStatistics parallel = dt.summarizeLong("value", v -> v % 2 == 0, true);
+		assertThat(parallel.getCount()).isEqualTo(sequential.getCount()).isEqualTo(size / 2);
+		assertThat(parallel.getSum()).isEqualTo(sequential.getSum());
+		assertThat(parallel.getMin()).isEqualTo(1234L);
+		assertThat(parallel.getMax()).isEqualTo(size + 1232L);
+	}
+
+	@Test
+	public void histogramCountsValuesPerBucket() {
+		DataTable<Long> dt = new DataTable<>(Long.class, 10);
+		dt.addLongColumn("value", Long::longValue);
+		dt.addDoubleColumn("half", v -> v / 2.0);
+		for (long i = 0; i < 12; i++)
+			dt.add(i);
+		assertThat(dt.longHistogram("value", 0, 10, 5, null)).containsExactly(0L, 2L, 2L, 2L, 2L);
+		assertThat(dt.doubleHistogram("half", 0, 6, 3, v -> v != 4.5)).containsExactly(2L, 4L, 3L);
+	}
+
+	private static <T> List<TableChange<T>> subscribe(final DataTable<T> dt) {
+		List<TableChange<T>> received = new CopyOnWriteArrayList<>();
+		dt.changes().subscribe(new Flow.Subscriber<TableChange<T>>() {
+			@Override
+			public void onSubscribe(final Flow.Subscription subscription) {
+				subscription.request(Long.MAX_VALUE);
+			}
+
+			@Override
+			public void onNext(final TableChange<T> item) {
+				received.add(item);
+			}
+
+			@Override
+			public void onError(final Throwable throwable) {
+			}
+
+			@Override
+			public void onComplete() {
+			}
+		});
+		return received;
+	}
+
+	private static void awaitSize(final List<?> list, final int size) throws InterruptedException {
+		for (int i = 0; i < 500 && list.size() < size; i++)
+			Thread.sleep(10);
+	}
+
+	@Test
+	public void changesArePublishedInOrder() throws InterruptedException {
+		DataTable<String> dt = new DataTable<>(String.class, 2);
+		List<TableChange<String>> changes = subscribe(dt);
+		dt.add("a", "b", "c");
+		dt.poll();
+		dt.clear();
+		dt.load(new String[] { "d" });
+		awaitSize(changes, 8);
+		assertThat(changes.stream().map(c -> c.type() + ":" + c.element()).collect(Collectors.toList()))
+				.containsExactly("INSERT:a", "INSERT:b", "EVICT:a", "INSERT:c", "REMOVE:b", "CLEAR:null", "CLEAR:null",
+						"INSERT:d");
+		assertThat(changes.stream().map(TableChange::sequence).collect(Collectors.toList())).containsExactly(1L, 2L,
+				3L, 4L, 5L, 6L, 7L, 8L);
+	}
+
+	@Test
+	public void mirrorConvergesUnderConcurrentWriters() throws Exception {
+		DataTable<Integer> dt = new DataTable<>(Integer.class, 100);
+		ExecutorService publisher = Executors.newSingleThreadExecutor();
+		dt.publishChanges(publisher, 4);
+		List<TableChange<Integer>> changes = subscribe(dt);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			int offset = t * 1000;
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < 1000; i++)
+					dt.add(offset + i);
+			}));
+		}
+		for (Future<?> future : futures)
+			future.get(10, TimeUnit.SECONDS);
+		executor.shutdown();
+		awaitSize(changes, 4000 + 3900);
+		Set<Integer> mirror = new HashSet<>();
+		assertThat(changes.get(changes.size() - 1).sequence()).isEqualTo(7900L);
+		for (TableChange<Integer> change : changes)
+			if (change.type() == TableChange.Type.INSERT)
+				mirror.add(change.element());
+			else
+				mirror.remove(change.element());
+		assertThat(mirror).isEqualTo(new HashSet<>(dt.toList()));
+		dt.closeChanges();
+		publisher.shutdown();
+	}
+
+	@Test
+	public void loadingInParallelBuildsAllIndexes() {
+		DataTable<Integer> dt = new DataTable<>(Integer.class, 10_000);
+		dt.addIndex("id", e -> e);
+		dt.addMultiIndex("mod", e -> e % 10);
+		dt.addLongIndex("long", e -> e);
+		dt.addSortedIndex("sorted", e -> e);
+		dt.load(IntStream.range(0, 12_000).boxed().toArray(Integer[]::new), true);
+		assertThat(dt.get("id", 1999)).isNull();
+		assertThat(dt.get("id", 2000)).isEqualTo(2000);
+		assertThat(dt.multiGet("mod", 3)).hasSize(1000);
+		assertThat(dt.longGet("long", 11_999L)).isEqualTo(11_999);
+		assertThat(dt.sortedFirst("sorted", 1)).containsExactly(2000);
+		assertThat(dt.buildTime("mod").isZero()).isFalse();
+		dt.add(12_000);
+		assertThat(dt.get("id", 2000)).isNull();
+		assertThat(dt.get("id", 12_000)).isEqualTo(12_000);
+	}
+
+	@Test
+	public void deferredIndexIsBuiltOnFirstLookup() {
+		DataTable<Integer> dt = new DataTable<>(Integer.class, 5);
+		dt.addIndex("id", e -> e);
+		dt.addMultiIndex("even", e -> e % 2 == 0);
+		dt.deferIndex("even");
+		dt.load(new Integer[] { 1, 2, 3, 4 });
+		assertThat(dt.buildTime("even").isZero()).isTrue();
+		dt.add(5, 6);
+		assertThat(dt.multiGet("even", true)).containsExactly(2, 4, 6);
+		assertThat(dt.buildTime("even").isZero()).isFalse();
+		assertThat(dt.poll()).isEqualTo(2);
+		assertThat(dt.multiGet("even", true)).containsExactly(4, 6);
+	}
 }
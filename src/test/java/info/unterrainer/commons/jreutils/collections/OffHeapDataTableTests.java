@@ -0,0 +1,137 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class OffHeapDataTableTests {
+
+	public static class Trade {
+		private final long id;
+		private final int account;
+		private final double price;
+
+		public Trade(final long id, final int account, final double price) {
+			this.id = id;
+			this.account = account;
+			this.price = price;
+		}
+
+		public long id() {
+			return id;
+		}
+
+		public int account() {
+			return account;
+		}
+
+		public double price() {
+			return price;
+		}
+	}
+
+	private static final RowCodec<Trade> CODEC = new RowCodec<>() {
+
+		@Override
+		public int rowSize() {
+			return 20;
+		}
+
+		@Override
+		public void encode(final Trade row, final ByteBuffer buffer, final int offset) {
+			buffer.putLong(offset, row.id());
+			buffer.putInt(offset + 8, row.account());
+			buffer.putDouble(offset + 12, row.price());
+		}
+
+		@Override
+		public Trade decode(final ByteBuffer buffer, final int offset) {
+			return new Trade(buffer.getLong(offset), buffer.getInt(offset + 8), buffer.getDouble(offset + 12));
+		}
+	};
+
+	private static OffHeapDataTable<Trade> table(final int maxEntries) {
+		return new OffHeapDataTable<>(CODEC, maxEntries).addIndex("id", Trade::id)
+				.addMultiIndex("account", Trade::account);
+	}
+
+	private static List<Long> ids(final List<Trade> trades) {
+		List<Long> ids = new ArrayList<>();
+		for (Trade trade : trades)
+			ids.add(trade.id());
+		return ids;
+	}
+
+	@Test
+	public void addingAndGettingWorks() {
+		OffHeapDataTable<Trade> dt = table(10);
+		dt.add(new Trade(1, 100, 1.5), new Trade(2, 200, 2.5), new Trade(3, 100, 3.5));
+		assertThat(dt.size()).isEqualTo(3);
+		assertThat(dt.get("id", 2).price()).isEqualTo(2.5);
+		assertThat(dt.get("id", 4)).isNull();
+		assertThat(dt.containsKey("id", 3)).isTrue();
+		assertThat(ids(dt.multiGet("account", 100))).containsExactly(1L, 3L);
+		assertThat(dt.multiGet("account", 300)).isEmpty();
+		assertThat(ids(dt.toList())).containsExactly(1L, 2L, 3L);
+		assertThat(dt.offHeapBytes()).isEqualTo(200);
+	}
+
+	@Test
+	public void fullTableEvictsOldestFromAllIndexes() {
+		OffHeapDataTable<Trade> dt = table(3);
+		for (int i = 0; i < 5; i++)
+			dt.add(new Trade(i, i % 2, i));
+		assertThat(dt.size()).isEqualTo(3);
+		assertThat(dt.evictions()).isEqualTo(2);
+		assertThat(dt.evictions("id")).isEqualTo(2);
+		assertThat(dt.evictions("account")).isEqualTo(2);
+		assertThat(dt.get("id", 0)).isNull();
+		assertThat(dt.get("id", 4).price()).isEqualTo(4.0);
+		assertThat(ids(dt.multiGet("account", 0))).containsExactly(2L, 4L);
+		assertThat(ids(dt.multiGet("account", 1))).containsExactly(3L);
+		assertThat(ids(dt.toList())).containsExactly(2L, 3L, 4L);
+	}
+
+	@Test
+	public void pollingUnlinksFromMultiIndexChains() {
+		OffHeapDataTable<Trade> dt = table(10);
+		for (int i = 0; i < 6; i++)
+			dt.add(new Trade(i, 7, i));
+		assertThat(dt.poll().id()).isEqualTo(0);
+		assertThat(dt.peek().id()).isEqualTo(1);
+		assertThat(ids(dt.multiGet("account", 7))).containsExactly(1L, 2L, 3L, 4L, 5L);
+		for (int i = 0; i < 5; i++)
+			dt.poll();
+		assertThat(dt.poll()).isNull();
+		assertThat(dt.multiContainsKey("account", 7)).isFalse();
+		assertThat(dt.evictions("account")).isEqualTo(0);
+	}
+
+	@Test
+	public void duplicateUniqueKeysReferenceLatestRow() {
+		OffHeapDataTable<Trade> dt = table(2);
+		dt.add(new Trade(1, 0, 1.0), new Trade(1, 0, 2.0));
+		assertThat(dt.get("id", 1).price()).isEqualTo(2.0);
+		dt.add(new Trade(2, 0, 3.0));
+		assertThat(dt.get("id", 1).price()).isEqualTo(2.0);
+	}
+
+	@Test
+	public void indexesAddedLaterAreBuiltFromExistingRows() {
+		OffHeapDataTable<Trade> dt = new OffHeapDataTable<>(CODEC, 100000);
+		List<Trade> trades = new ArrayList<>();
+		for (int i = 0; i < 100000; i++)
+			trades.add(new Trade(i, i % 100, i));
+		dt.addAll(trades);
+		dt.addIndex("id", Trade::id, t -> t.price() >= 50000);
+		assertThat(dt.get("id", 49999)).isNull();
+		assertThat(dt.get("id", 99999).account()).isEqualTo(99);
+		dt.clear();
+		assertThat(dt.size()).isEqualTo(0);
+		assertThat(dt.get("id", 99999)).isNull();
+	}
+}
@@ -0,0 +1,202 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class RingDataQueueTests {
+
+	@Test
+	public void offeringAndPollingWorks() {
+		RingDataQueue<String> q = new RingDataQueue<>(10);
+		q.offer("test1").offer("test2");
+		assertThat(q.size()).isEqualTo(2);
+		assertThat(q.peek()).isEqualTo("test1");
+		assertThat(q.poll()).isEqualTo("test1");
+		assertThat(q.poll()).isEqualTo("test2");
+		assertThat(q.poll()).isNull();
+		assertThat(q.peek()).isNull();
+		assertThat(q.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void offeringToFullQueueDropsOldest() {
+		List<Integer> evicted = new ArrayList<>();
+		RingDataQueue<Integer> q = new RingDataQueue<Integer>(3).onEviction(evicted::add);
+		for (int i = 0; i < 5; i++)
+			q.offer(i);
+		assertThat(q.size()).isEqualTo(3);
+		assertThat(evicted).containsExactly(0, 1);
+		assertThat(q.getListClone()).containsExactly(2, 3, 4);
+		assertThat(q.getListCloneAndClear()).containsExactly(2, 3, 4);
+		assertThat(q.size()).isEqualTo(0);
+		q.offer(5);
+		assertThat(q.poll()).isEqualTo(5);
+	}
+
+	@Test
+	public void concurrentProducersAndConsumersLoseNothing() throws InterruptedException {
+		int threads = 4;
+		int perThread = 20000;
+		RingDataQueue<Integer> q = new RingDataQueue<>(threads * perThread);
+		ConcurrentLinkedQueue<Integer> received = new ConcurrentLinkedQueue<>();
+		AtomicInteger remaining = new AtomicInteger(threads * perThread);
+		CountDownLatch done = new CountDownLatch(threads * 2);
+		for (int t = 0; t < threads; t++) {
+			int base = t * perThread;
+			new Thread(() -> {
+				for (int i = 0; i < perThread; i++)
+					q.offer(base + i);
+				done.countDown();
+			}).start();
+			new Thread(() -> {
+				while (remaining.get() > 0) {
+					Integer e = q.poll();
+					if (e != null) {
+						received.add(e);
+						remaining.decrementAndGet();
+					}
+				}
+				done.countDown();
+			}).start();
+		}
+		done.await();
+		assertThat(received).hasSize(threads * perThread);
+		boolean[] seen = new boolean[threads * perThread];
+		for (int e : received) {
+			assertThat(seen[e]).isFalse();
+			seen[e] = true;
+		}
+	}
+
+	@Test
+	public void concurrentOfferingToFullQueueKeepsEveryElementOnce() throws InterruptedException {
+		int threads = 4;
+		int perThread = 20000;
+		ConcurrentLinkedQueue<Integer> evicted = new ConcurrentLinkedQueue<>();
+		RingDataQueue<Integer> q = new RingDataQueue<Integer>(100).onEviction(evicted::add);
+		List<Thread> producers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int base = t * perThread;
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < perThread; i++)
+					q.offer(base + i);
+			});
+			producers.add(thread);
+			thread.start();
+		}
+		for (Thread thread : producers)
+			thread.join();
+		List<Integer> rest = q.getListCloneAndClear();
+		assertThat(rest).hasSize(100);
+		assertThat(evicted.size() + rest.size()).isEqualTo(threads * perThread);
+	}
+
+	@Test
+	public void queueThatIsNeverFullDoesntEvict() throws InterruptedException {
+		int capacity = 4;
+		int count = 20000;
+		AtomicInteger evictions = new AtomicInteger();
+		AtomicInteger consumed = new AtomicInteger();
+		ConcurrentLinkedQueue<Integer> received = new ConcurrentLinkedQueue<>();
+		RingDataQueue<Integer> q = new RingDataQueue<Integer>(capacity).onEviction(e -> evictions.incrementAndGet());
+		Thread consumer = new Thread(() -> {
+			while (consumed.get() + evictions.get() < count) {
+				Integer e = q.poll();
+				if (e == null)
+					Thread.yield();
+				else {
+					received.add(e);
+					consumed.incrementAndGet();
+				}
+			}
+		});
+		consumer.start();
+		for (int i = 0; i < count; i++) {
+			// Keep at most capacity - 1 elements in flight, so there is always room.
+			while (i - consumed.get() - evictions.get() >= capacity - 1)
+				Thread.yield();
+			q.offer(i);
+		}
+		consumer.join();
+		assertThat(evictions.get()).isEqualTo(0);
+		assertThat(received).hasSize(count);
+	}
+
+	@Test
+	public void capacityOfOneIsRejected() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new RingDataQueue<String>(1));
+	}
+
+	@Test
+	public void smallestQueueEvictsTheOldestElement() {
+		List<String> evicted = new ArrayList<>();
+		RingDataQueue<String> q = new RingDataQueue<String>(2).onEviction(evicted::add);
+		q.offer("a").offer("b").offer("c");
+		assertThat(evicted).containsExactly("a");
+		assertThat(q.size()).isEqualTo(2);
+		assertThat(q.poll()).isEqualTo("b");
+		assertThat(q.poll()).isEqualTo("c");
+		assertThat(q.poll()).isNull();
+	}
+
+	@Test
+	public void drainingWorks() {
+		RingDataQueue<Integer> q = new RingDataQueue<>(4);
+		for (int i = 0; i < 6; i++)
+			q.offer(i);
+		Integer[] buffer = new Integer[3];
+		assertThat(q.drainTo(buffer)).isEqualTo(3);
+		assertThat(buffer).containsExactly(2, 3, 4);
+		List<Integer> list = new ArrayList<>();
+		assertThat(q.drainTo(list, 10)).isEqualTo(1);
+		assertThat(list).containsExactly(5);
+		assertThat(q.drainTo(list, 10)).isEqualTo(0);
+		assertThat(q.drainTo(list, 0)).isEqualTo(0);
+	}
+
+	@Test
+	public void concurrentDrainingLosesNothing() throws InterruptedException {
+		int threads = 4;
+		int perThread = 20000;
+		RingDataQueue<Integer> q = new RingDataQueue<>(1024);
+		ConcurrentLinkedQueue<Integer> received = new ConcurrentLinkedQueue<>();
+		AtomicInteger remaining = new AtomicInteger(threads * perThread);
+		CountDownLatch done = new CountDownLatch(threads * 2);
+		for (int t = 0; t < threads; t++) {
+			int base = t * perThread;
+			new Thread(() -> {
+				for (int i = 0; i < perThread; i++) {
+					while (q.size() >= 1000)
+						Thread.onSpinWait();
+					q.offer(base + i);
+				}
+				done.countDown();
+			}).start();
+			new Thread(() -> {
+				Integer[] buffer = new Integer[64];
+				while (remaining.get() > 0) {
+					int n = q.drainTo(buffer);
+					for (int i = 0; i < n; i++)
+						received.add(buffer[i]);
+					remaining.addAndGet(-n);
+				}
+				done.countDown();
+			}).start();
+		}
+		done.await();
+		assertThat(received).hasSize(threads * perThread);
+		boolean[] seen = new boolean[threads * perThread];
+		for (int e : received) {
+			assertThat(seen[e]).isFalse();
+			seen[e] = true;
+		}
+	}
+}
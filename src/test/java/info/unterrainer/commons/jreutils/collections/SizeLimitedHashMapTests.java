@@ -0,0 +1,175 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class SizeLimitedHashMapTests {
+
+	@Test
+	public void defaultEvictsOldestInserted() {
+		SizeLimitedHashMap<String, Integer> map = new SizeLimitedHashMap<>(2);
+		map.put("a", 1);
+		map.put("b", 2);
+		map.get("a");
+		map.put("c", 3);
+		assertThat(map.keySet()).containsExactly("b", "c");
+	}
+
+	@Test
+	public void accessOrderEvictsLeastRecentlyUsed() {
+		SizeLimitedHashMap<String, Integer> map = new SizeLimitedHashMap<>(
+				EvictionPolicy.<String, Integer>builder().maxSize(2).accessOrder(true).build());
+		map.put("a", 1);
+		map.put("b", 2);
+		map.get("a");
+		map.put("c", 3);
+		assertThat(map.keySet()).containsExactly("a", "c");
+	}
+
+	@Test
+	public void weigherLimitsTotalWeight() {
+		SizeLimitedHashMap<String, String> map = new SizeLimitedHashMap<>(EvictionPolicy.<String, String>builder()
+				.weigher((k, v) -> v.length())
+				.maxWeight(10)
+				.build());
+		map.put("a", "12345");
+		map.put("b", "1234");
+		assertThat(map.weight()).isEqualTo(9);
+		map.put("c", "123456");
+		assertThat(map.keySet()).containsExactly("b", "c");
+		assertThat(map.weight()).isEqualTo(10);
+		map.put("c", "1234567");
+		assertThat(map.keySet()).containsExactly("c");
+		assertThat(map.weight()).isEqualTo(7);
+		map.remove("c");
+		assertThat(map.weight()).isEqualTo(0);
+	}
+
+	@Test
+	public void entriesExpireAfterWrite() {
+		AtomicLong ticker = new AtomicLong();
+		SizeLimitedHashMap<String, Integer> map = new SizeLimitedHashMap<>(EvictionPolicy.<String, Integer>builder()
+				.expireAfterWrite(Duration.ofNanos(100))
+				.ticker(ticker::get)
+				.build());
+		map.put("a", 1);
+		ticker.set(50);
+		map.put("b", 2);
+		ticker.set(99);
+		assertThat(map.get("a")).isEqualTo(1);
+		ticker.set(100);
+		assertThat(map.get("a")).isNull();
+		assertThat(map.containsKey("b")).isTrue();
+		ticker.set(200);
+		assertThat(map.size()).isEqualTo(1);
+		map.put("c", 3);
+		assertThat(map.keySet()).containsExactly("c");
+	}
+
+	@Test
+	public void entriesExpireAfterAccess() {
+		AtomicLong ticker = new AtomicLong();
+		SizeLimitedHashMap<String, Integer> map = new SizeLimitedHashMap<>(EvictionPolicy.<String, Integer>builder()
+				.accessOrder(true)
+				.expireAfterAccess(Duration.ofNanos(100))
+				.ticker(ticker::get)
+				.build());
+		map.put("a", 1);
+		map.put("b", 2);
+		ticker.set(80);
+		map.get("a");
+		ticker.set(150);
+		map.cleanUp();
+		assertThat(map.keySet()).containsExactly("a");
+		ticker.set(180);
+		assertThat(map.get("a")).isNull();
+		assertThat(map.isEmpty()).isTrue();
+	}
+
+	@Test
+	public void trackingMapsOnlyExposeTheirValues() {
+		SizeLimitedHashMap<String, String> map = new SizeLimitedHashMap<>(EvictionPolicy.<String, String>builder()
+				.weigher((k, v) -> v.length())
+				.maxWeight(10)
+				.build());
+		map.put("a", "12");
+		map.put("b", "345");
+		assertThat(map.values()).containsExactly("12", "345");
+		assertThat(map.containsValue("345")).isTrue();
+		assertThat(new HashMap<>(map)).isEqualTo(Map.of("a", "12", "b", "345"));
+		assertThat(map.merge("a", "6", String::concat)).isEqualTo("126");
+		assertThat(map.weight()).isEqualTo(6);
+
+		for (Map.Entry<String, String> e : map.entrySet())
+			e.setValue(e.getValue() + "0");
+		assertThat(map).isEqualTo(Map.of("a", "1260", "b", "3450"));
+		assertThat(map.weight()).isEqualTo(8);
+
+		@SuppressWarnings("unchecked")
+		SizeLimitedHashMap<String, String> clone = (SizeLimitedHashMap<String, String>) map.clone();
+		clone.put("a", "1");
+		assertThat(map.get("a")).isEqualTo("1260");
+		assertThat(clone.get("a")).isEqualTo("1");
+		assertThat(clone.weight()).isEqualTo(5);
+
+		map.values().removeIf("3450"::equals);
+		assertThat(map.keySet()).containsExactly("a");
+		assertThat(map.weight()).isEqualTo(4);
+	}
+
+	@Test
+	public void dataMapUsesPolicy() {
+		AtomicLong ticker = new AtomicLong();
+		DataMap<String, Integer> map = new DataMap<>(EvictionPolicy.<String, Integer>builder()
+				.maxSize(10)
+				.expireAfterWrite(Duration.ofNanos(100))
+				.ticker(ticker::get)
+				.build());
+		map.put("a", 1).put("b", 2);
+		ticker.set(100);
+		map.put("c", 3);
+		assertThat(map.getMapClone().keySet()).containsExactly("c");
+		assertThat(map.get("a")).isNull();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void sizeLimitedMapsSurviveSerialization() throws Exception {
+		SizeLimitedHashMap<String, Integer> map = new SizeLimitedHashMap<>(2);
+		map.put("a", 1);
+		map.put("b", 2);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(map);
+		}
+		SizeLimitedHashMap<String, Integer> copy;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			copy = (SizeLimitedHashMap<String, Integer>) in.readObject();
+		}
+		copy.put("c", 3);
+		assertThat(copy.keySet()).containsExactly("b", "c");
+		assertThat(copy.get("c")).isEqualTo(3);
+	}
+
+	@Test
+	public void trackingMapsRefuseSerialization() {
+		SizeLimitedHashMap<String, Integer> map = new SizeLimitedHashMap<>(EvictionPolicy.<String, Integer>builder()
+				.expireAfterWrite(Duration.ofNanos(100))
+				.build());
+		map.put("a", 1);
+		assertThrows(NotSerializableException.class,
+				() -> new ObjectOutputStream(new ByteArrayOutputStream()).writeObject(map));
+	}
+}
@@ -0,0 +1,154 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class StripedDataMapTests {
+
+	@Test
+	public void puttingAndGettingWorks() {
+		StripedDataMap<String, Integer> map = new StripedDataMap<>(100, 8);
+		assertThat(map.stripes()).isEqualTo(8);
+		assertThat(map.isEmpty()).isTrue();
+		for (int i = 0; i < 50; i++)
+			map.put("key" + i, i);
+		assertThat(map.size()).isEqualTo(50);
+		assertThat(map.get("key17")).isEqualTo(17);
+		assertThat(map.containsKey("key49")).isTrue();
+		assertThat(map.containsValue(3)).isTrue();
+		assertThat(map.keySet()).hasSize(50);
+		assertThat(map.values()).hasSize(50);
+		assertThat(map.entrySet()).hasSize(50);
+		assertThat(map.remove("key17")).isEqualTo(17);
+		assertThat(map.get("key17")).isNull();
+		map.clear();
+		assertThat(map.isEmpty()).isTrue();
+	}
+
+	@Test
+	public void sizeLimitIsApproximatelyRespected() {
+		StripedDataMap<Integer, Integer> map = new StripedDataMap<>(1000, 16);
+		for (int i = 0; i < 100000; i++)
+			map.put(i, i);
+		assertThat(map.size()).isLessThanOrEqualTo(1008);
+		assertThat(map.size()).isGreaterThan(900);
+	}
+
+	@Test
+	public void stripesNeverExceedMaxSize() {
+		StripedDataMap<Integer, Integer> map = new StripedDataMap<>(3, 64);
+		assertThat(map.stripes()).isEqualTo(2);
+		map.put(1, 1);
+		assertThat(map.get(1)).isEqualTo(1);
+	}
+
+	@Test
+	public void getMapCloneAndClearWorks() {
+		StripedDataMap<Integer, Integer> map = new StripedDataMap<>(1000);
+		for (int i = 0; i < 100; i++)
+			map.put(i, i * 2);
+		Map<Integer, Integer> clone = map.getMapCloneAndClear();
+		assertThat(clone).hasSize(100);
+		assertThat(clone.get(42)).isEqualTo(84);
+		assertThat(map.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void concurrentPutsAndGetsWork() throws InterruptedException {
+		StripedDataMap<Integer, Integer> map = new StripedDataMap<>(100000, 16);
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			int base = t * 10000;
+			Thread thread = new Thread(() -> {
+				for (int i = base; i < base + 10000; i++) {
+					map.put(i, i);
+					map.get(i - 1);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		assertThat(map.size()).isEqualTo(40000);
+		assertThat(map.get(39999)).isEqualTo(39999);
+	}
+
+	@Test
+	public void policiesAreAppliedToEveryStripe() {
+		AtomicLong ticker = new AtomicLong();
+		StripedDataMap<Integer, Integer> map = new StripedDataMap<>(EvictionPolicy.<Integer, Integer>builder()
+				.maxSize(1000)
+				.expireAfterWrite(Duration.ofNanos(1000))
+				.ticker(ticker::get)
+				.build(), 4);
+		for (int i = 0; i < 100; i++)
+			map.put(i, i);
+		ticker.set(500);
+		map.put(100, 100);
+		ticker.set(1200);
+		map.cleanUp();
+		assertThat(map.size()).isEqualTo(1);
+		assertThat(map.get(100)).isEqualTo(100);
+	}
+
+	@Test
+	public void weightLimitIsSharedByTheStripes() {
+		StripedDataMap<Integer, Integer> map = new StripedDataMap<>(EvictionPolicy.<Integer, Integer>builder()
+				.maxWeight(400)
+				.weigher((k, v) -> v)
+				.build(), 4);
+		for (int i = 0; i < 1000; i++)
+			map.put(i, 10);
+		assertThat(map.size()).isLessThanOrEqualTo(40);
+		assertThat(map.size()).isGreaterThan(30);
+	}
+
+	@Test
+	public void entriesAreRefreshedAhead() throws Exception {
+		AtomicLong ticker = new AtomicLong();
+		StripedDataMap<String, Integer> map = new StripedDataMap<>(EvictionPolicy.<String, Integer>builder()
+				.maxSize(100)
+				.refreshAfterWrite(Duration.ofNanos(500))
+				.ticker(ticker::get)
+				.build(), 4);
+		AtomicInteger loads = new AtomicInteger();
+		CompletableFuture<Integer> reload = new CompletableFuture<>();
+		assertThat(map.computeIfAbsent("a", k -> loads.incrementAndGet())).isEqualTo(1);
+		ticker.set(600);
+		assertThat(map.computeIfAbsentAsync("a", k -> {
+			loads.incrementAndGet();
+			return reload;
+		}).get()).isEqualTo(1);
+		assertThat(loads.get()).isEqualTo(2);
+		reload.complete(2);
+		assertThat(map.get("a")).isEqualTo(2);
+	}
+
+	@Test
+	public void getAllLoadsMissingKeysOnce() {
+		StripedDataMap<Integer, Integer> map = new StripedDataMap<>(100, 4);
+		map.put(1, 10);
+		AtomicInteger loads = new AtomicInteger();
+		Map<Integer, Integer> result = map.getAll(List.of(1, 2, 3), keys -> {
+			loads.incrementAndGet();
+			Map<Integer, Integer> loaded = new HashMap<>();
+			for (Integer key : keys)
+				loaded.put(key, key * 10);
+			return loaded;
+		});
+		assertThat(result).containsEntry(1, 10).containsEntry(2, 20).containsEntry(3, 30);
+		assertThat(loads.get()).isEqualTo(1);
+		assertThat(map.size()).isEqualTo(3);
+	}
+}
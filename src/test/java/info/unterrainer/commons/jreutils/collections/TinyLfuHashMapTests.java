@@ -0,0 +1,142 @@
+package info.unterrainer.commons.jreutils.collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TinyLfuHashMapTests {
+
+	@Test
+	public void puttingGettingAndRemovingWorks() {
+		TinyLfuHashMap<String, Integer> map = new TinyLfuHashMap<>(100);
+		for (int i = 0; i < 50; i++)
+			map.put("key" + i, i);
+		assertThat(map.size()).isEqualTo(50);
+		assertThat(map.get("key7")).isEqualTo(7);
+		assertThat(map.put("key7", 70)).isEqualTo(7);
+		assertThat(map.get("key7")).isEqualTo(70);
+		assertThat(map.remove("key7")).isEqualTo(70);
+		assertThat(map.containsKey("key7")).isFalse();
+		assertThat(map.entrySet()).hasSize(49);
+		for (Iterator<Map.Entry<String, Integer>> it = map.entrySet().iterator(); it.hasNext();)
+			if (it.next().getValue() % 2 == 0)
+				it.remove();
+		assertThat(map.size()).isEqualTo(24);
+		map.clear();
+		assertThat(map.isEmpty()).isTrue();
+	}
+
+	@Test
+	public void sizeIsLimited() {
+		TinyLfuHashMap<Integer, Integer> map = new TinyLfuHashMap<>(100);
+		for (int i = 0; i < 10000; i++)
+			map.put(i, i);
+		assertThat(map.size()).isEqualTo(100);
+		TinyLfuHashMap<Integer, Integer> single = new TinyLfuHashMap<>(1);
+		single.put(1, 1);
+		single.put(2, 2);
+		assertThat(single.size()).isEqualTo(1);
+		assertThat(single.get(2)).isEqualTo(2);
+	}
+
+	@Test
+	public void nullKeysAreSupported() {
+		TinyLfuHashMap<Integer, Integer> map = new TinyLfuHashMap<>(10);
+		map.put(null, 0);
+		assertThat(map.get(null)).isEqualTo(0);
+		for (int i = 1; i < 100; i++)
+			map.put(i, i);
+		assertThat(map.size()).isEqualTo(10);
+		map.put(null, 1);
+		assertThat(map.get(null)).isEqualTo(1);
+		assertThat(map.remove(null)).isEqualTo(1);
+	}
+
+	@Test
+	public void frequentlyUsedEntriesSurviveAScan() {
+		assertThat(survivorsOfScan(new SizeLimitedHashMap<>(100))).isEqualTo(0);
+		assertThat(survivorsOfScan(new TinyLfuHashMap<>(100))).isGreaterThanOrEqualTo(45);
+	}
+
+	private static int survivorsOfScan(final Map<Integer, Integer> map) {
+		for (int round = 0; round < 5; round++)
+			for (int i = 0; i < 50; i++)
+				if (map.get(i) == null)
+					map.put(i, i);
+		for (int i = 1000; i < 5000; i++)
+			map.put(i, i);
+		int survivors = 0;
+		for (int i = 0; i < 50; i++)
+			if (map.containsKey(i))
+				survivors++;
+		return survivors;
+	}
+
+	@Test
+	public void dataMapUsesTinyLfuPolicy() {
+		DataMap<Integer, Integer> map = new DataMap<>(
+				EvictionPolicy.<Integer, Integer>builder().maxSize(10).tinyLfu(true).build());
+		for (int i = 0; i < 100; i++)
+			map.put(i, i);
+		assertThat(map.size()).isEqualTo(10);
+	}
+
+	/**
+	 * Replays a trace of a Zipf-distributed working set, interrupted by large
+	 * scans of keys that are used only once, and compares the hit rates of the
+	 * insertion-order and the W-TinyLFU policy.
+	 */
+	@Test
+	public void simulationShowsHigherHitRateThanInsertionOrder() {
+		int cacheSize = 1000;
+		int[] trace = zipfTraceWithScans(10000, 200000, 20000, 3000, 42L);
+		double insertionOrder = hitRate(new SizeLimitedHashMap<>(cacheSize), trace);
+		double tinyLfu = hitRate(new TinyLfuHashMap<>(cacheSize), trace);
+		assertThat(tinyLfu).isGreaterThan(insertionOrder);
+	}
+
+	private static double hitRate(final Map<Integer, Integer> cache, final int[] trace) {
+		int hits = 0;
+		for (int key : trace)
+			if (cache.get(key) != null)
+				hits++;
+			else
+				cache.put(key, key);
+		return (double) hits / trace.length;
+	}
+
+	private static int[] zipfTraceWithScans(final int keys, final int length, final int scanEvery,
+			final int scanLength, final long seed) {
+		double[] cumulative = new double[keys];
+		double sum = 0;
+		for (int i = 0; i < keys; i++) {
+			sum += 1.0 / (i + 1);
+			cumulative[i] = sum;
+		}
+		Random random = new Random(seed);
+		int[] trace = new int[length];
+		int scanKey = keys;
+		for (int i = 0; i < length; i++) {
+			if (i % scanEvery < scanLength) {
+				trace[i] = scanKey++;
+				continue;
+			}
+			double r = random.nextDouble() * sum;
+			int low = 0;
+			int high = keys - 1;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (cumulative[mid] < r)
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			trace[i] = low;
+		}
+		return trace;
+	}
+}
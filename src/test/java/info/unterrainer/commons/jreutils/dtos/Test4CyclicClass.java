@@ -0,0 +1,12 @@
+package info.unterrainer.commons.jreutils.dtos;
+
+import lombok.Data;
+
+@Data
+public class Test4CyclicClass {
+
+	@ContainsMyType
+	private MyType myType = new MyType();
+	@ContainsMyType
+	private Test4CyclicClass parent;
+}
@@ -0,0 +1,24 @@
+package info.unterrainer.commons.jreutils.dtos;
+
+import java.util.List;
+
+import info.unterrainer.commons.jreutils.logging.LogField;
+import lombok.Data;
+
+@Data
+public class Test5LogClass {
+
+	@LogField
+	private String name = "name";
+	@LogField
+	private int[] ints = { 1, 2, 3 };
+	@LogField
+	private double[] doubles = { 0.5 };
+	@LogField
+	private float[] floats = { 0.1f };
+	@LogField
+	private char[] chars = { 'a', 'b' };
+	@LogField
+	private List<String> strings = List.of("x", "y");
+	private String notLogged = "secret";
+}
@@ -0,0 +1,132 @@
+package info.unterrainer.commons.jreutils.processing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+
+import info.unterrainer.commons.jreutils.GeneratedAccessors;
+import info.unterrainer.commons.jreutils.GeneratedField;
+import info.unterrainer.commons.jreutils.Reflecting;
+import info.unterrainer.commons.jreutils.logging.FieldLogger;
+import info.unterrainer.commons.jreutils.logging.LogField;
+
+public class AccessorProcessorTests {
+
+	private static final String SOURCE = String.join("\n", "package sample;", "",
+			"import info.unterrainer.commons.jreutils.logging.LogField;", "", "public class Sample {", "",
+			"\t@LogField", "\tprivate String name = \"abc\";", "\t@LogField", "\tprivate int count = 3;",
+			"\t@LogField", "\tpublic Inner inner = new Inner();", "\t@LogField",
+			"\tpublic java.util.List<Inner> inners = java.util.List.of(new Inner(), new Inner());", "",
+			"\tpublic String getName() {", "\t\treturn name.toUpperCase();", "\t}", "",
+			"\tpublic static class Inner {", "\t\t@LogField", "\t\tlong id = 7;", "\t}", "}", "");
+
+	private static final String OTHER_SOURCE = String.join("\n", "package sample;", "",
+			"import info.unterrainer.commons.jreutils.logging.LogField;", "", "public class Other {", "",
+			"\t@LogField", "\tprivate static String label = \"other\";", "}", "");
+
+	private Path compile() throws Exception {
+		return compile(Files.createTempDirectory("accessors"), "Sample", SOURCE);
+	}
+
+	private Path compile(final Path dir, final String className, final String content) throws Exception {
+		Path source = dir.resolve("sample/" + className + ".java");
+		Files.createDirectories(source.getParent());
+		Files.writeString(source, content);
+		String classPath = Paths.get(GeneratedAccessors.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+				.toString() + File.pathSeparator + System.getProperty("java.class.path") + File.pathSeparator + dir;
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		int result = compiler.run(null, null, null, "-processor", AccessorProcessor.class.getName(), "-classpath",
+				classPath, "-d", dir.toString(), "-s", dir.toString(), source.toString());
+		assertThat(result).isEqualTo(0);
+		return dir;
+	}
+
+	private Object instance(final Path dir) throws Exception {
+		ClassLoader loader = new URLClassLoader(new URL[] { dir.toUri().toURL() }, getClass().getClassLoader());
+		return loader.loadClass("sample.Sample").getConstructor().newInstance();
+	}
+
+	@Test
+	public void generatesAccessorsAndRegistersThem() throws Exception {
+		Path dir = compile();
+		assertThat(Files.exists(dir.resolve("sample/Sample_LogFieldAccessors.java"))).isTrue();
+		assertThat(Files.exists(dir.resolve("sample/Sample_Inner_LogFieldAccessors.java"))).isTrue();
+		List<String> services = Files
+				.readAllLines(dir.resolve("META-INF/services/" + GeneratedAccessors.class.getName()));
+		assertThat(services).containsExactlyInAnyOrder("sample.Sample_LogFieldAccessors",
+				"sample.Sample_Inner_LogFieldAccessors");
+	}
+
+	@Test
+	public void incrementalCompilationsKeepEarlierRegistrations() throws Exception {
+		Path dir = compile();
+		compile(dir, "Other", OTHER_SOURCE);
+		List<String> services = Files
+				.readAllLines(dir.resolve("META-INF/services/" + GeneratedAccessors.class.getName()));
+		assertThat(services).containsExactlyInAnyOrder("sample.Sample_LogFieldAccessors",
+				"sample.Sample_Inner_LogFieldAccessors", "sample.Other_LogFieldAccessors");
+	}
+
+	@Test
+	public void generatedAccessorsAreRegisteredForAllFields() throws Exception {
+		Object instance = instance(compile());
+		GeneratedAccessors accessors = null;
+		for (GeneratedAccessors a : ServiceLoader.load(GeneratedAccessors.class, instance.getClass().getClassLoader()))
+			if (a.type() == instance.getClass())
+				accessors = a;
+		assertThat(accessors).isNotNull();
+		Map<String, GeneratedField> fields = new HashMap<>();
+		for (GeneratedField field : accessors.fields())
+			fields.put(field.name(), field);
+		// Private fields are read through a VarHandle, not their getter (which would
+		// return 'ABC').
+		assertThat(fields.get("name").getter().apply(instance)).isEqualTo("abc");
+		assertThat(fields.get("count").getter().apply(instance)).isEqualTo(3);
+		assertThat(fields.get("inner").getter().apply(instance))
+				.isSameAs(Reflecting.getFieldByPath("inner", instance, LogField.class));
+		assertThat(fields.get("inners").elementType().getName()).isEqualTo("sample.Sample$Inner");
+	}
+
+	@Test
+	public void generatedAccessorsReadTheSameValuesAsReflection() throws Exception {
+		Object instance = instance(compile());
+		// The private field is read, not its getter (which would return 'ABC').
+		assertThat((Object) Reflecting.getFieldByPath("name", instance, LogField.class)).isEqualTo("abc");
+		assertThat((Object) Reflecting.getFieldByPath("count", instance, LogField.class)).isEqualTo(3);
+		assertThat((Object) Reflecting.getFieldByPath("inner.id", instance, LogField.class)).isEqualTo(7L);
+		assertThat(FieldLogger.log(instance, instance.getClass())).contains("name: abc", "count: 3");
+	}
+
+	@Test
+	public void pathsOfGeneratedAccessorsMatchReflection() throws Exception {
+		Object instance = instance(compile());
+		assertThat(Reflecting.getPathsOf(instance.getClass(), LogField.class)).containsExactly("name", "count",
+				"inner", "inner.id", "inners", "inners.id");
+	}
+
+	@Test
+	public void brokenRegistrationsFallBackToReflection() throws Exception {
+		Path dir = compile();
+		Path services = dir.resolve("META-INF/services/" + GeneratedAccessors.class.getName());
+		Files.writeString(services, "sample.DoesNotExist\n" + Files.readString(services));
+		Object instance = instance(dir);
+		assertThat((Object) Reflecting.getFieldByPath("inner.id", instance, LogField.class)).isEqualTo(7L);
+		assertThat(Reflecting.getPathsOf(instance.getClass(), LogField.class)).containsExactly("name", "count",
+				"inner", "inner.id", "inners", "inners.id");
+	}
+}